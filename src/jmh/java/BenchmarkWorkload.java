@@ -0,0 +1,132 @@
+import benchmarks.Workload;
+import org.locationtech.jts.operation.distance.DistanceOp;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Workload for the JMH benchmarks in package benchmarks, backed by the real
+ * GeoJSONParser and LiveDistanceCalculator
+ */
+public class BenchmarkWorkload implements Workload {
+
+    private GeoJSONParser parser;
+    private LiveDistanceCalculator calc;
+    private ScoringKernel scoringKernel = ScoringKernel.scalar();
+
+    @Override
+    public void load(Path geoJson) throws IOException {
+        parser = new GeoJSONParser();
+        parser.loadFromFileStreaming(geoJson.toString());
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public void loadLayout(Path geoJson, String layout) throws IOException {
+        parser = new GeoJSONParser();
+        parser.setQuantizedCoordinates(layout.equals("quantized"));
+        if (layout.equals("tree")) {
+            parser.loadFromFile(geoJson.toString());
+        } else {
+            parser.loadFromFileStreaming(geoJson.toString());
+        }
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public void loadWithSnapshot(Path geoJson, Path snapshot) throws IOException {
+        parser = new GeoJSONParser();
+        parser.loadWithSnapshot(geoJson.toString(), snapshot.toString());
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public void loadIndexed(Path geoJson) throws IOException {
+        parser = new GeoJSONParser();
+        parser.loadIndexed(geoJson.toString());
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public void decodeGeometries() {
+        for (int id = 0; id < countryCount(); id++) {
+            parser.getCountryGeometry(id);
+        }
+    }
+
+    @Override
+    public int countryCount() {
+        return parser.getRegistry().size();
+    }
+
+    @Override
+    public int[] countriesBySize() {
+        return IntStream.range(0, countryCount()).boxed()
+                .sorted(Comparator.comparingInt(id -> parser.getCountryGeometry(id).getNumPoints()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Override
+    public void useDistanceEngine(String engine) {
+        parser.setDistanceEngine(engine.equals("planar") ? new PlanarDistanceEngine() : new SphericalDistanceEngine());
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public void useLevelOfDetail(boolean levelOfDetail) {
+        parser.setLevelOfDetail(levelOfDetail);
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public double exactDistance(int country1, int country2) {
+        return parser.calculateDistance(country1, country2);
+    }
+
+    @Override
+    public double plainDistance(int country1, int country2) {
+        return DistanceOp.distance(parser.getCountryGeometry(country1), parser.getCountryGeometry(country2));
+    }
+
+    @Override
+    public void resetCache() {
+        calc = new LiveDistanceCalculator(parser);
+    }
+
+    @Override
+    public int distance(int country1, int country2) {
+        return calc.getDistance(country1, country2);
+    }
+
+    @Override
+    public List<String> countriesInRange(int center, int minDistance, int maxDistance) {
+        return calc.getCountriesInRange(calc.getCountryName(center), minDistance, maxDistance);
+    }
+
+    @Override
+    public List<String> triangulate(int[] references, int[] distances) {
+        Map<String, Integer> referencePoints = new HashMap<>();
+        for (int r = 0; r < references.length; r++) {
+            referencePoints.put(calc.getCountryName(references[r]), distances[r]);
+        }
+        return calc.triangulate(referencePoints, referencePoints.keySet());
+    }
+
+    @Override
+    public boolean useScoringKernel(String kernel) {
+        ScoringKernel selected = kernel.equals("vector") ? ScoringKernel.vector() : ScoringKernel.scalar();
+        if (selected == null) {
+            return false;
+        }
+        scoringKernel = selected;
+        return true;
+    }
+
+    @Override
+    public void scoreCandidates(int[][] low, int[][] high, int[] targets, int[] minError, int[] maxError) {
+        scoringKernel.score(low, high, targets, minError.length, minError, maxError);
+    }
+}
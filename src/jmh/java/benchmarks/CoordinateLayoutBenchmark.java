@@ -0,0 +1,87 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vertex layouts: Coordinate objects (tree loader), packed double[]
+ * (streaming loader) and off-heap fixed point (streaming loader with
+ * quantized coordinates). Times the load, and distances between the same
+ * random pairs with plain DistanceOp and with both engines. Add -prof gc for
+ * the allocation and collections of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoordinateLayoutBenchmark {
+
+    private static final int PAIRS = 200;
+
+    @Param({"tree", "packed", "quantized"})
+    public String layout;
+
+    private Path geoJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        geoJson = Workload.fixture();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Benchmark
+    public Workload load() throws IOException {
+        Workload workload = Workload.create();
+        workload.loadLayout(geoJson, layout);
+        return workload;
+    }
+
+    /**
+     * A loaded workload and the pairs to measure, for one distance method
+     */
+    @State(Scope.Benchmark)
+    public static class Loaded {
+        @Param({"distanceOp", "planar", "spherical"})
+        public String method;
+
+        Workload workload;
+        int[][] pairs;
+
+        @Setup
+        public void setUp(CoordinateLayoutBenchmark benchmark) throws IOException {
+            workload = Workload.create();
+            workload.loadLayout(benchmark.geoJson, benchmark.layout);
+            if (!method.equals("distanceOp")) {
+                workload.useDistanceEngine(method);
+            }
+
+            Random random = new Random(5);
+            pairs = new int[PAIRS][];
+            for (int p = 0; p < PAIRS; p++) {
+                pairs[p] = new int[]{random.nextInt(workload.countryCount()), random.nextInt(workload.countryCount())};
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void distances(Loaded loaded, Blackhole blackhole) {
+        boolean plain = loaded.method.equals("distanceOp");
+        for (int[] pair : loaded.pairs) {
+            blackhole.consume(plain
+                    ? loaded.workload.plainDistance(pair[0], pair[1])
+                    : loaded.workload.exactDistance(pair[0], pair[1]));
+        }
+    }
+}
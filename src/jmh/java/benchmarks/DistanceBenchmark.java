@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One country pair: the exact border distance for the two smallest or the two
+ * largest borders in the fixture, a lookup that has to compute it (cold
+ * cache), and a lookup that hits the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @Param({"small", "huge"})
+    public String polygons;
+
+    private Path geoJson;
+    private Workload workload;
+    private int country1;
+    private int country2;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        geoJson = Workload.fixture();
+        workload.load(geoJson);
+
+        int[] bySize = workload.countriesBySize();
+        if (polygons.equals("small")) {
+            country1 = bySize[0];
+            country2 = bySize[1];
+        } else {
+            country1 = bySize[bySize.length - 1];
+            country2 = bySize[bySize.length - 2];
+        }
+        // Prepare both shapes so every benchmark measures the distance itself
+        workload.exactDistance(country1, country2);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Benchmark
+    public double exactDistance() {
+        return workload.exactDistance(country1, country2);
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void reset(DistanceBenchmark benchmark) {
+            benchmark.workload.resetCache();
+        }
+    }
+
+    @Benchmark
+    public int cacheMiss(ColdCache cold) {
+        return workload.distance(country1, country2);
+    }
+
+    @Benchmark
+    public int cacheHit() {
+        return workload.distance(country1, country2);
+    }
+}
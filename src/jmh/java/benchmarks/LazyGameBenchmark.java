@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of a game that touches 10 countries (all their pairwise
+ * distances): the streaming load of every geometry vs the feature index,
+ * which parses only those 10. Add -prof gc for the allocation per load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyGameBenchmark {
+
+    @Param({"eager", "indexed"})
+    public String loader;
+
+    private Path geoJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        geoJson = Workload.fixture();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Benchmark
+    public Workload loadAndPlay(Blackhole blackhole) throws IOException {
+        Workload workload = Workload.create();
+        if (loader.equals("indexed")) {
+            workload.loadIndexed(geoJson);
+        } else {
+            workload.load(geoJson);
+        }
+
+        // Ten countries spread over the id range, as a game's guesses would be
+        int countries = workload.countryCount();
+        int[] touched = new int[Math.min(10, countries)];
+        for (int i = 0; i < touched.length; i++) {
+            touched[i] = (int) ((long) i * countries / touched.length);
+        }
+        for (int i = 0; i < touched.length; i++) {
+            for (int j = i + 1; j < touched.length; j++) {
+                blackhole.consume(workload.exactDistance(touched[i], touched[j]));
+            }
+        }
+        return workload;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Twenty short games with a cold distance cache each, with and without
+ * level-of-detail shapes: a range query around the first guess, then a
+ * triangulation turn after each of two more guesses
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevelOfDetailBenchmark {
+
+    @Param({"false", "true"})
+    public boolean levelOfDetail;
+
+    private Path geoJson;
+    private Workload workload;
+    // Per game: the target, then the guesses in order
+    private int[][] games;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        geoJson = Workload.fixture();
+        workload.load(geoJson);
+        workload.useLevelOfDetail(levelOfDetail);
+
+        // Fixed seed so every run plays the same games
+        Random random = new Random(7);
+        games = new int[20][4];
+        for (int[] game : games) {
+            for (int k = 0; k < game.length; k++) {
+                game[k] = random.nextInt(workload.countryCount());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Benchmark
+    public void playGames(Blackhole blackhole) {
+        for (int[] game : games) {
+            workload.resetCache();
+            int target = game[0];
+            blackhole.consume(workload.countriesInRange(game[1], 4000, 8000));
+
+            int[] distances = new int[game.length - 1];
+            for (int k = 1; k < game.length; k++) {
+                distances[k - 1] = workload.distance(game[k], target);
+                if (k >= 2) {
+                    blackhole.consume(workload.triangulate(
+                            Arrays.copyOfRange(game, 1, k + 1), Arrays.copyOf(distances, k)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost: streaming GeoJSON parse vs opening the binary snapshot, and
+ * the snapshot again with every geometry decoded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    private Path geoJson;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        geoJson = Workload.fixture();
+        snapshot = geoJson.resolveSibling("benchmark-countries.snapshot");
+        // Build the snapshot once so the benchmark only measures opening it
+        Workload.create().loadWithSnapshot(geoJson, snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Benchmark
+    public Workload streamingLoad() throws IOException {
+        Workload workload = Workload.create();
+        workload.load(geoJson);
+        return workload;
+    }
+
+    @Benchmark
+    public Workload snapshotLoad() throws IOException {
+        Workload workload = Workload.create();
+        workload.loadWithSnapshot(geoJson, snapshot);
+        return workload;
+    }
+
+    @Benchmark
+    public Workload snapshotLoadAll() throws IOException {
+        Workload workload = Workload.create();
+        workload.loadWithSnapshot(geoJson, snapshot);
+        workload.decodeGeometries();
+        return workload;
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact distances from one of the three largest countries in the fixture to
+ * every other country, per engine: with the per-country structures already
+ * built, and with fresh ones that the pass has to build first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OneToAllBenchmark {
+
+    @Param({"planar", "spherical"})
+    public String engine;
+
+    // 0 = the country with the most border vertices
+    @Param({"0", "1", "2"})
+    public int largest;
+
+    private Path geoJson;
+    private Workload workload;
+    private int source;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        geoJson = Workload.fixture();
+        workload.load(geoJson);
+        workload.useDistanceEngine(engine);
+
+        int[] bySize = workload.countriesBySize();
+        source = bySize[bySize.length - 1 - largest];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @State(Scope.Thread)
+    public static class FreshShapes {
+        @Setup(Level.Invocation)
+        public void reset(OneToAllBenchmark benchmark) {
+            benchmark.workload.useDistanceEngine(benchmark.engine);
+        }
+    }
+
+    @Benchmark
+    public void preparedShapes(Blackhole blackhole) {
+        for (int other = 0; other < workload.countryCount(); other++) {
+            blackhole.consume(workload.exactDistance(source, other));
+        }
+    }
+
+    @Benchmark
+    public void freshShapes(FreshShapes fresh, Blackhole blackhole) {
+        for (int other = 0; other < workload.countryCount(); other++) {
+            blackhole.consume(workload.exactDistance(source, other));
+        }
+    }
+}
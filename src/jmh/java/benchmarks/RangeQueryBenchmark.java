@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getCountriesInRange around one country (the strategic second guess) with a
+ * cold and a warm distance cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeQueryBenchmark {
+
+    private Path geoJson;
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        geoJson = Workload.fixture();
+        workload.load(geoJson);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void reset(RangeQueryBenchmark benchmark) {
+            benchmark.workload.resetCache();
+        }
+    }
+
+    @Benchmark
+    public List<String> coldCache(ColdCache cold) {
+        return workload.countriesInRange(0, 4000, 8000);
+    }
+
+    @Benchmark
+    public List<String> warmCache() {
+        return workload.countriesInRange(0, 4000, 8000);
+    }
+}
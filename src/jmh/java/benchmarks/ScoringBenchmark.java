@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triangulation's bounding stage alone: weighted error bounds of 200 or 5,000
+ * candidates against 5 references, scalar versus Vector API kernel. Half the
+ * candidates have exact (cached) distances, the rest a bound interval.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+
+    private static final int REFERENCES = 5;
+
+    @Param({"200", "5000"})
+    public int candidates;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private Workload workload;
+    private int[][] low;
+    private int[][] high;
+    private int[] targets;
+    private int[] minError;
+    private int[] maxError;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.create();
+        if (!workload.useScoringKernel(kernel)) {
+            throw new IllegalStateException("Vector kernel unavailable; run with --add-modules jdk.incubator.vector");
+        }
+
+        Random random = new Random(42);
+        low = new int[REFERENCES][candidates];
+        high = new int[REFERENCES][candidates];
+        targets = new int[REFERENCES];
+        for (int r = 0; r < REFERENCES; r++) {
+            // Mix close (double weight) and far references
+            targets[r] = random.nextInt(r % 2 == 0 ? 1000 : 15000);
+            for (int c = 0; c < candidates; c++) {
+                low[r][c] = random.nextInt(15000);
+                high[r][c] = c % 2 == 0 ? low[r][c] : low[r][c] + random.nextInt(3000);
+            }
+        }
+        minError = new int[candidates];
+        maxError = new int[candidates];
+    }
+
+    @Benchmark
+    public int[] score() {
+        workload.scoreCandidates(low, high, targets, minError, maxError);
+        return maxError;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full triangulation turn from 2, 5 or 10 reference guesses with a cold
+ * distance cache, as in a new game
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriangulationBenchmark {
+
+    @Param({"2", "5", "10"})
+    public int references;
+
+    private Path geoJson;
+    private Workload workload;
+    private int[] guesses;
+    private int[] distances;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        geoJson = Workload.fixture();
+        workload.load(geoJson);
+
+        // Fixed seed so every run plays the same turn
+        Random random = new Random(42);
+        int target = random.nextInt(workload.countryCount());
+        guesses = random.ints(0, workload.countryCount()).filter(id -> id != target)
+                .distinct().limit(references).toArray();
+        distances = new int[references];
+        for (int r = 0; r < references; r++) {
+            distances[r] = workload.distance(guesses[r], target);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Workload.deleteFixture(geoJson);
+    }
+
+    @Setup(Level.Invocation)
+    public void coldCache() {
+        workload.resetCache();
+    }
+
+    @Benchmark
+    public List<String> triangulate() {
+        return workload.triangulate(guesses, distances);
+    }
+}
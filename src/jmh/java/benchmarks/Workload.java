@@ -0,0 +1,138 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * What the benchmarks exercise. The solver classes live in the default
+ * package, which JMH benchmarks (and any named package) cannot import, so
+ * they are reached through this interface, implemented by BenchmarkWorkload
+ * in the default package.
+ */
+public interface Workload {
+
+    /**
+     * Streaming GeoJSON load
+     */
+    void load(Path geoJson) throws IOException;
+
+    /**
+     * Load with one vertex layout: "tree" (Coordinate objects), "packed"
+     * (double[]) or "quantized" (off-heap fixed point)
+     */
+    void loadLayout(Path geoJson, String layout) throws IOException;
+
+    /**
+     * Load through the binary snapshot (built on the first call)
+     */
+    void loadWithSnapshot(Path geoJson, Path snapshot) throws IOException;
+
+    /**
+     * Lazy load from the per-feature byte index; geometries are parsed on first use
+     */
+    void loadIndexed(Path geoJson) throws IOException;
+
+    /**
+     * Decode every country's geometry, which lazy loads defer to first use
+     */
+    void decodeGeometries();
+
+    int countryCount();
+
+    /**
+     * Country ids ordered by number of border vertices, fewest first
+     */
+    int[] countriesBySize();
+
+    /**
+     * Switch to the "planar" or "spherical" distance engine; per-country
+     * structures are rebuilt on first use and the distance cache starts empty
+     */
+    void useDistanceEngine(String engine);
+
+    /**
+     * Turn level-of-detail shapes on or off; the distance cache starts empty
+     */
+    void useLevelOfDetail(boolean levelOfDetail);
+
+    /**
+     * Exact border distance straight from the parser, bypassing any cache
+     */
+    double exactDistance(int country1, int country2);
+
+    /**
+     * Unindexed JTS DistanceOp between two geometries, in degrees
+     */
+    double plainDistance(int country1, int country2);
+
+    /**
+     * Replace the calculator with one whose distance cache is empty
+     */
+    void resetCache();
+
+    /**
+     * Distance through the calculator's cache
+     */
+    int distance(int country1, int country2);
+
+    List<String> countriesInRange(int center, int minDistance, int maxDistance);
+
+    /**
+     * One triangulation turn from the given guesses and their reported distances
+     */
+    List<String> triangulate(int[] references, int[] distances);
+
+    /**
+     * Use the "scalar" or "vector" triangulation scoring kernel; false if the
+     * vector kernel is unavailable (jdk.incubator.vector not added)
+     */
+    boolean useScoringKernel(String kernel);
+
+    /**
+     * Triangulation error bounds of every candidate from distance bounds laid
+     * out one row per reference, through the selected kernel
+     */
+    void scoreCandidates(int[][] low, int[][] high, int[] targets, int[] minError, int[] maxError);
+
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkWorkload is missing from the classpath", e);
+        }
+    }
+
+    /**
+     * The bundled fixture copied to a new temporary directory, since the
+     * loaders read files; call once per trial and pass to deleteFixture in
+     * its @TearDown
+     */
+    static Path fixture() throws IOException {
+        Path directory = Files.createTempDirectory("globle-jmh");
+        Path geoJson = directory.resolve("benchmark-countries.geojson");
+        try (InputStream in = Workload.class.getResourceAsStream("/benchmark-countries.geojson")) {
+            if (in == null) {
+                throw new IOException("benchmark-countries.geojson is missing from the classpath");
+            }
+            Files.copy(in, geoJson, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return geoJson;
+    }
+
+    /**
+     * Delete a fixture() copy's directory, with anything the loaders wrote next to it
+     */
+    static void deleteFixture(Path geoJson) throws IOException {
+        try (Stream<Path> files = Files.walk(geoJson.getParent())) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import jdk.jfr.FlightRecorder;
+
 import java.util.*;
 
 /**
@@ -6,35 +8,121 @@ import java.util.*;
  */
 public class BotAlgorithm {
 
-    private GlobleBot bot;
+    private static final Metrics.Timer SELECT_GUESS = Metrics.timer("solver.select");
+    private static final Metrics.Timer TURN = Metrics.timer("solver.turn");
+
+    // Oracle of a solver that only recommends guesses for games played elsewhere
+    private static final GameOracle NO_GAME = new GameOracle() {
+        @Override
+        public void makeGuess(String countryName) {
+            throw noGame();
+        }
+
+        @Override
+        public GuessResult getLastGuessResult() {
+            throw noGame();
+        }
+
+        @Override
+        public boolean isSolved(GuessResult result) {
+            throw noGame();
+        }
+    };
+
+    private GameOracle bot;
     private LiveDistanceCalculator distanceCalc;
     private List<GuessResult> guessHistory;
     private Set<String> guessedCountries;
-
-    public BotAlgorithm(GlobleBot bot, LiveDistanceCalculator distanceCalc) {
+    private boolean verbose = true;
+    private InformationSolver informationSolver;
+    private CandidateFilter candidateFilter;
+    private BitSet candidates;
+    private OpeningBook openingBook;
+    private int bookNode = -1;
+    private int bookTurns;
+    private String lastStrategy;
+
+    public BotAlgorithm(GameOracle bot, LiveDistanceCalculator distanceCalc) {
         this.bot = bot;
         this.distanceCalc = distanceCalc;
         this.guessHistory = new ArrayList<>();
         this.guessedCountries = new HashSet<>();
+        this.candidateFilter = distanceCalc.getCandidateFilter();
+        this.candidates = candidateFilter.allCountries();
+    }
+
+    /**
+     * Solver without a game of its own, for recommend(); playing with it
+     * (solve) throws IllegalStateException
+     */
+    public BotAlgorithm(LiveDistanceCalculator distanceCalc) {
+        this(NO_GAME, distanceCalc);
+    }
+
+    private static IllegalStateException noGame() {
+        return new IllegalStateException("This solver has no game to play; it only recommends guesses");
+    }
+
+    /**
+     * Turn progress output on or off (off for batch runs)
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
-    public void solve(String initialGuess) {
+    /**
+     * Choose guesses by expected information instead of distance bands and
+     * triangulation (which remain the fallback when no candidate is consistent)
+     */
+    public void setInformationSolver(InformationSolver informationSolver) {
+        this.informationSolver = informationSolver;
+    }
+
+    /**
+     * Take guesses from a precompiled decision tree while the game stays on
+     * its recorded branches
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Number of guesses this game that were looked up in the opening book
+     */
+    public int getBookTurns() {
+        return bookTurns;
+    }
+
+    public List<GuessResult> getGuessHistory() {
+        return Collections.unmodifiableList(guessHistory);
+    }
+
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Play until solved; returns the number of guesses used, or -1 if not solved
+     */
+    public int solve(String initialGuess) {
+        if (bot == NO_GAME) {
+            throw noGame();
+        }
         try {
-            System.out.println("\n=== Starting GeoJSON-Based Globle Solver ===\n");
+            log("\n=== Starting GeoJSON-Based Globle Solver ===\n");
 
             // Make initial guess
-            System.out.println("Guess #1: " + initialGuess);
-            bot.makeGuess(initialGuess);
-            GuessResult result = bot.getLastGuessResult();
+            log("Guess #1: " + initialGuess);
+            GuessResult result = playTurn(1, initialGuess, "opening", 0);
 
             if (result != null) {
-                guessHistory.add(result);
-                guessedCountries.add(result.country.toLowerCase());
-                System.out.println(result);
+                log(result.toString());
 
                 if (isSolved(result)) {
-                    System.out.println("\n🎉 SOLVED! Answer: " + result.country);
-                    return;
+                    log("\n🎉 SOLVED! Answer: " + result.country);
+                    return 1;
                 }
             }
 
@@ -42,33 +130,39 @@ public class BotAlgorithm {
             int maxGuesses = 50;
 
             while (guessCount < maxGuesses) {
+                long selectStart = System.nanoTime();
                 String nextGuess = getNextOptimalGuess();
+                long selectNanos = System.nanoTime() - selectStart;
+                SELECT_GUESS.record(selectNanos);
 
                 if (nextGuess == null) {
-                    System.out.println("\nNo more candidates");
+                    log("\nNo more candidates");
                     break;
                 }
 
                 guessCount++;
-                System.out.println("\nGuess #" + guessCount + ": " + nextGuess);
+                log("\nGuess #" + guessCount + ": " + nextGuess);
 
-                Thread.sleep(1500);
-                bot.makeGuess(nextGuess);
-                result = bot.getLastGuessResult();
+                result = playTurn(guessCount, nextGuess, lastStrategy, selectNanos);
 
                 if (result != null) {
-                    guessHistory.add(result);
-                    guessedCountries.add(result.country.toLowerCase());
-                    System.out.println(result);
+                    log(result.toString());
 
                     if (isSolved(result)) {
-                        System.out.println("\n🎉 SOLVED in " + guessCount + " guesses!");
-                        System.out.println("Answer: " + result.country);
+                        log("\n🎉 SOLVED in " + guessCount + " guesses!");
+                        log("Answer: " + result.country);
 
                         // Print cache stats
-                        distanceCalc.printCacheStats();
-                        return;
+                        if (verbose) {
+                            distanceCalc.printCacheStats();
+                        }
+                        return guessCount;
                     }
+                } else {
+                    // Count it as tried so the same guess is not repeated forever;
+                    // the book has no branch for a missing result, so leave it
+                    guessedCountries.add(distanceCalc.getCanonicalName(nextGuess));
+                    bookNode = -1;
                 }
             }
 
@@ -76,29 +170,167 @@ public class BotAlgorithm {
             System.out.println("Error: " + e.getMessage());
             e.printStackTrace();
         }
+        return -1;
+    }
+
+    /**
+     * Make a guess, read and record its result, and report the turn to the
+     * metrics and (when recording) JFR. The selection time is the part of the
+     * turn spent choosing the guess before this call.
+     */
+    private GuessResult playTurn(int turn, String guess, String strategy, long selectNanos) {
+        GuessTurnEvent event = FlightRecorder.isInitialized() ? GuessTurnEvent.started() : null;
+        long start = TURN.start();
+
+        bot.makeGuess(guess);
+        GuessResult result = bot.getLastGuessResult();
+        if (result != null) {
+            recordResult(result);
+        }
+
+        TURN.stop(start);
+        if (event != null) {
+            event.finish(turn, guess, strategy, result != null ? result.getDistanceAsInt() : -1,
+                    candidates.cardinality(), selectNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Next guess for a game played elsewhere (e.g. by a service client): the
+     * given results are replayed first. Returns null if nothing is left to guess.
+     */
+    public String recommend(List<GuessResult> history) {
+        for (GuessResult result : history) {
+            recordResult(result);
+        }
+        return history.isEmpty() ? null : getNextOptimalGuess();
+    }
+
+    /**
+     * Unguessed countries consistent with every result so far, in id order
+     */
+    public List<String> getCandidates() {
+        BitSet remaining = getRemaining();
+        List<String> names = new ArrayList<>();
+        for (int c = remaining.nextSetBit(0); c >= 0; c = remaining.nextSetBit(c + 1)) {
+            names.add(distanceCalc.getCountryName(c));
+        }
+        return names;
+    }
+
+    /**
+     * Ids of the unguessed countries consistent with every result so far
+     */
+    private BitSet getRemaining() {
+        BitSet remaining = (BitSet) candidates.clone();
+        remaining.andNot(distanceCalc.getCountryIds(guessedCountries));
+        return remaining;
+    }
+
+    /**
+     * Add a result to the history and narrow the candidate set by it
+     */
+    private void recordResult(GuessResult result) {
+        guessHistory.add(result);
+        guessedCountries.add(distanceCalc.getCanonicalName(result.country));
+        int guess = distanceCalc.getCountryId(result.country);
+        if (result.isLowerBound()) {
+            candidateFilter.applyAtLeast(candidates, guess, result.getDistanceAsInt());
+        } else {
+            candidateFilter.apply(candidates, guess, result.getDistanceAsInt());
+        }
+
+        if (openingBook != null) {
+            // The book's branches are exact distances; a lower bound leaves it
+            int node = guessHistory.size() == 1 ? openingBook.openingNode(guess) : bookNode;
+            bookNode = node >= 0 && openingBook.getGuess(node) == guess && !result.isLowerBound()
+                    ? openingBook.next(node, result.getDistanceAsInt())
+                    : -1;
+        }
     }
 
     private boolean isSolved(GuessResult result) {
-        return result.getDistanceAsInt() == 0 || result.getDistanceAsInt() == -1;
+        return bot.isSolved(result);
     }
 
     private String getNextOptimalGuess() {
-        int numGuesses = guessHistory.size();
+        if (bookNode >= 0) {
+            bookTurns++;
+            lastStrategy = "book";
+            log("Opening book guess");
+            return distanceCalc.getCountryName(openingBook.getGuess(bookNode));
+        }
 
-        if (numGuesses == 1) {
-            return getStrategicSecondGuess();
-        } else if (numGuesses == 2) {
-            return triangulateFromTwoPoints();
+        if (informationSolver != null && !candidates.isEmpty()) {
+            int guess = informationSolver.nextGuess(candidates, distanceCalc.getCountryIds(guessedCountries));
+            log(String.format("Information solver: %d candidates left, turn took %.2f ms",
+                    candidates.cardinality(), informationSolver.getLastTurnMillis()));
+            if (guess >= 0) {
+                lastStrategy = "information";
+                return distanceCalc.getCountryName(guess);
+            }
+        }
+
+        BitSet remaining = getRemaining();
+        if (!remaining.isEmpty()) {
+            log(remaining.cardinality() + " candidates consistent with every guess");
+            lastStrategy = "consistent";
+            return rankConsistent(remaining);
+        }
+        log("No consistent candidates, falling back to ranked triangulation");
+        lastStrategy = "triangulation";
+
+        // Only guesses with their own distance can be triangulated from
+        List<GuessResult> exact = getExactResults();
+        if (exact.isEmpty()) {
+            return getAnyUnguessedCountry();
+        } else if (exact.size() == 1) {
+            return getStrategicSecondGuess(exact.get(0));
+        } else if (exact.size() == 2) {
+            return triangulateFromTwoPoints(exact.get(0), exact.get(1));
         } else {
-            return triangulateFromMultiplePoints();
+            return triangulateFromMultiplePoints(exact);
         }
     }
 
-    private String getStrategicSecondGuess() {
-        GuessResult first = guessHistory.get(0);
+    /**
+     * The consistent candidate that triangulation scores best against the
+     * exact results; the lowest id if there is nothing to score against
+     */
+    private String rankConsistent(BitSet remaining) {
+        Map<String, Integer> referencePoints = new HashMap<>();
+        for (GuessResult guess : getExactResults()) {
+            referencePoints.put(guess.country, guess.getDistanceAsInt());
+        }
+
+        if (!referencePoints.isEmpty()) {
+            BitSet excluded = (BitSet) remaining.clone();
+            excluded.flip(0, distanceCalc.getCountryCount());
+            LiveDistanceCalculator.Triangulation triangulation =
+                    distanceCalc.triangulateWithStats(referencePoints, excluded);
+            List<String> ranked = triangulation.candidates();
+            log("Pruning: " + triangulation.stats());
+
+            if (!ranked.isEmpty()) {
+                log("Top candidates: " + ranked.subList(0, Math.min(3, ranked.size())));
+                return ranked.get(0);
+            }
+        }
+        return distanceCalc.getCountryName(remaining.nextSetBit(0));
+    }
+
+    /**
+     * Results whose distance is the guess's own, oldest first
+     */
+    private List<GuessResult> getExactResults() {
+        return guessHistory.stream().filter(GuessResult::isExact).toList();
+    }
+
+    private String getStrategicSecondGuess(GuessResult first) {
         int firstDistance = first.getDistanceAsInt();
 
-        System.out.println("Searching for strategic second guess...");
+        log("Searching for strategic second guess...");
 
         if (firstDistance < 2000) {
             // Close guess - pick something far away
@@ -112,20 +344,20 @@ public class BotAlgorithm {
         }
     }
 
-    private String triangulateFromTwoPoints() {
-        GuessResult first = guessHistory.get(0);
-        GuessResult second = guessHistory.get(1);
-
-        System.out.println("Triangulating from 2 reference points...");
+    private String triangulateFromTwoPoints(GuessResult first, GuessResult second) {
+        log("Triangulating from 2 reference points...");
 
         Map<String, Integer> referencePoints = new HashMap<>();
         referencePoints.put(first.country, first.getDistanceAsInt());
         referencePoints.put(second.country, second.getDistanceAsInt());
 
-        List<String> candidates = distanceCalc.triangulate(referencePoints, guessedCountries);
+        LiveDistanceCalculator.Triangulation triangulation =
+                distanceCalc.triangulateWithStats(referencePoints, guessedCountries);
+        List<String> candidates = triangulation.candidates();
+        log("Pruning: " + triangulation.stats());
 
         if (!candidates.isEmpty()) {
-            System.out.println("Top candidates: " +
+            log("Top candidates: " +
                     candidates.subList(0, Math.min(5, candidates.size())));
             return candidates.get(0);
         }
@@ -135,18 +367,21 @@ public class BotAlgorithm {
         return getCountryNearReference(closest.country, closest.getDistanceAsInt());
     }
 
-    private String triangulateFromMultiplePoints() {
-        System.out.println("Triangulating from " + guessHistory.size() + " reference points...");
+    private String triangulateFromMultiplePoints(List<GuessResult> exact) {
+        log("Triangulating from " + exact.size() + " reference points...");
 
         Map<String, Integer> referencePoints = new HashMap<>();
-        for (GuessResult guess : guessHistory) {
+        for (GuessResult guess : exact) {
             referencePoints.put(guess.country, guess.getDistanceAsInt());
         }
 
-        List<String> candidates = distanceCalc.triangulate(referencePoints, guessedCountries);
+        LiveDistanceCalculator.Triangulation triangulation =
+                distanceCalc.triangulateWithStats(referencePoints, guessedCountries);
+        List<String> candidates = triangulation.candidates();
+        log("Pruning: " + triangulation.stats());
 
         if (!candidates.isEmpty()) {
-            System.out.println("Top candidates: " +
+            log("Top candidates: " +
                     candidates.subList(0, Math.min(3, candidates.size())));
             return candidates.get(0);
         }
@@ -160,7 +395,7 @@ public class BotAlgorithm {
         List<String> candidates = distanceCalc.getCountriesInRange(
                 referenceCountry, minDist, maxDist);
 
-        candidates.removeIf(c -> guessedCountries.contains(c.toLowerCase()));
+        candidates.removeIf(guessedCountries::contains);
 
         if (!candidates.isEmpty()) {
             return pickBestCandidate(candidates);
@@ -177,7 +412,7 @@ public class BotAlgorithm {
                 targetDistance + margin
         );
 
-        candidates.removeIf(c -> guessedCountries.contains(c.toLowerCase()));
+        candidates.removeIf(guessedCountries::contains);
 
         if (!candidates.isEmpty()) {
             return pickBestCandidate(candidates);
@@ -210,15 +445,16 @@ public class BotAlgorithm {
     }
 
     private GuessResult getClosestGuess() {
-        return guessHistory.stream()
+        List<GuessResult> exact = getExactResults();
+        return exact.stream()
                 .min(Comparator.comparingInt(GuessResult::getDistanceAsInt))
-                .orElse(guessHistory.get(0));
+                .orElse(exact.get(0));
     }
 
     private String getAnyUnguessedCountry() {
         Set<String> allCountries = distanceCalc.getAllCountries();
         for (String country : allCountries) {
-            if (!guessedCountries.contains(country.toLowerCase())) {
+            if (!guessedCountries.contains(country)) {
                 return country;
             }
         }
@@ -0,0 +1,153 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Plays the solver against every country as the secret target (optionally from
+ * every starting guess) using SimulatedGame, in parallel on all cores, and
+ * reports the distribution of guess counts.
+ */
+public class BulkEvaluator {
+
+    private final LiveDistanceCalculator distanceCalc;
+    private InformationSolver informationSolver;
+    private OpeningBook openingBook;
+
+    public BulkEvaluator(LiveDistanceCalculator distanceCalc) {
+        this.distanceCalc = distanceCalc;
+    }
+
+    /**
+     * Evaluate the information-based solver mode instead of the default one
+     */
+    public void setInformationSolver(InformationSolver informationSolver) {
+        this.informationSolver = informationSolver;
+    }
+
+    /**
+     * Look guesses up in an opening book before computing them
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Result of one simulated game; bookTurns counts guesses taken from the opening book
+     */
+    record GameResult(String start, String target, int guesses, int bookTurns) {
+    }
+
+    /**
+     * Solve for every target from each starting guess; returns one result per game
+     */
+    public List<GameResult> evaluate(List<String> startingGuesses) throws InterruptedException {
+        // Every distance is a cache hit from here on, so all threads only read the table
+        System.out.println("Precomputing distance table...");
+        distanceCalc.precomputeAllDistances();
+
+        List<String> targets = distanceCalc.getAllCountries().stream().sorted().toList();
+        List<Callable<GameResult>> games = new ArrayList<>();
+        for (String start : startingGuesses) {
+            for (String target : targets) {
+                games.add(() -> {
+                    SimulatedGame game = new SimulatedGame(distanceCalc, target);
+                    BotAlgorithm solver = new BotAlgorithm(game, distanceCalc);
+                    solver.setVerbose(false);
+                    solver.setInformationSolver(informationSolver);
+                    solver.setOpeningBook(openingBook);
+                    int guesses = solver.solve(start);
+                    return new GameResult(start, target, guesses, solver.getBookTurns());
+                });
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<GameResult> results = new ArrayList<>();
+            for (Future<GameResult> future : pool.invokeAll(games)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    System.out.println("Game failed: " + e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Histogram of guess counts plus mean / p95 / max and failures
+     */
+    public static void printReport(List<GameResult> results, double seconds) {
+        int[] guessCounts = results.stream().filter(r -> r.guesses() > 0).mapToInt(GameResult::guesses)
+                .sorted().toArray();
+        List<GameResult> failures = results.stream().filter(r -> r.guesses() <= 0).toList();
+
+        System.out.println("\n=== Bulk evaluation ===");
+        System.out.printf("Games: %d, solved: %d, failed: %d%n", results.size(), guessCounts.length, failures.size());
+
+        if (guessCounts.length > 0) {
+            TreeMap<Integer, Integer> histogram = new TreeMap<>();
+            for (int guesses : guessCounts) {
+                histogram.merge(guesses, 1, Integer::sum);
+            }
+            int widest = Collections.max(histogram.values());
+            for (Map.Entry<Integer, Integer> bucket : histogram.entrySet()) {
+                int bar = (int) Math.ceil(50.0 * bucket.getValue() / widest);
+                System.out.printf("%3d guesses: %5d %s%n", bucket.getKey(), bucket.getValue(), "#".repeat(bar));
+            }
+
+            double mean = Arrays.stream(guessCounts).average().orElse(0);
+            int p95 = guessCounts[(int) Math.ceil(0.95 * guessCounts.length) - 1];
+            System.out.printf("Mean: %.2f, p95: %d, max: %d%n", mean, p95, guessCounts[guessCounts.length - 1]);
+        }
+
+        int bookTurns = results.stream().mapToInt(GameResult::bookTurns).sum();
+        if (bookTurns > 0) {
+            // The opening guess is given, so only later turns are decisions
+            int decided = Arrays.stream(guessCounts).map(guesses -> guesses - 1).sum();
+            System.out.printf("Turns from opening book: %d/%d (%.1f%%)%n",
+                    bookTurns, decided, 100.0 * bookTurns / Math.max(1, decided));
+        }
+
+        for (GameResult failure : failures.subList(0, Math.min(10, failures.size()))) {
+            System.out.println("Failed: start " + failure.start() + ", target " + failure.target());
+        }
+
+        System.out.printf("Total time: %.2f s (%.0f games/sec)%n", seconds, results.size() / seconds);
+    }
+
+    /**
+     * Usage: BulkEvaluator <path-to-geojson> [starting-guess | --all-starts] [--info] [--book <book-file>]
+     *        [--tolerance <km>]
+     */
+    public static void main(String[] args) throws Exception {
+        SolverOptions options = SolverOptions.parse(args);
+        args = options.getArgs();
+        if (args.length < 1) {
+            System.out.println("Usage: BulkEvaluator <path-to-geojson> [starting-guess | --all-starts] [--info] [--book <book-file>]"
+                    + " [--tolerance <km>]");
+            return;
+        }
+
+        LiveDistanceCalculator distanceCalc = options.createCalculator(args[0]);
+        List<String> countries = distanceCalc.getAllCountries().stream().sorted().toList();
+
+        List<String> starts;
+        if (args.length > 1 && args[1].equals("--all-starts")) {
+            starts = countries;
+        } else if (args.length > 1) {
+            starts = List.of(distanceCalc.getCanonicalName(args[1]));
+        } else {
+            starts = List.of(countries.get(0));
+        }
+
+        long start = System.nanoTime();
+        BulkEvaluator evaluator = new BulkEvaluator(distanceCalc);
+        evaluator.setInformationSolver(options.createInformationSolver(distanceCalc));
+        evaluator.setOpeningBook(options.loadOpeningBook(distanceCalc));
+        List<GameResult> results = evaluator.evaluate(starts);
+        printReport(results, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Exact constraint filtering of candidate countries.
+ *
+ * In live play only the remaining candidates are tested: a cached distance,
+ * the envelope bounds or the level-of-detail bounds decide most of them, and
+ * an exact distance is computed only for the rest. Distances that never
+ * become exact stay uncomputed, so triangulate's bounds can still prune them.
+ *
+ * Once the calculator holds every distance (precomputed tables, as in bulk
+ * evaluation and the service), each guessed country's row is instead sorted
+ * once, so "all countries d +/- tolerance km away" is a contiguous slice
+ * found by binary search and a turn costs one BitSet AND. Sorted rows are
+ * shared by all games using this filter.
+ */
+public class CandidateFilter {
+
+    private final LiveDistanceCalculator distanceCalc;
+    private final int countries;
+    private final int toleranceKm;
+    private final int[][] orderByDistance;
+    private final int[][] sortedDistances;
+
+    public CandidateFilter(LiveDistanceCalculator distanceCalc, int toleranceKm) {
+        this.distanceCalc = distanceCalc;
+        this.countries = distanceCalc.getCountryCount();
+        this.toleranceKm = toleranceKm;
+        this.orderByDistance = new int[countries][];
+        this.sortedDistances = new int[countries][];
+    }
+
+    /**
+     * A fresh candidate set containing every country
+     */
+    public BitSet allCountries() {
+        BitSet candidates = new BitSet(countries);
+        candidates.set(0, countries);
+        return candidates;
+    }
+
+    /**
+     * Narrow candidates to countries consistent with one guess result
+     */
+    public void apply(BitSet candidates, int guess, int reportedDistance) {
+        if (guess < 0 || reportedDistance < 0) {
+            return;
+        }
+        narrow(candidates, guess, reportedDistance - toleranceKm, reportedDistance + toleranceKm);
+    }
+
+    /**
+     * Narrow candidates to countries consistent with a guess that is only
+     * known to be at least minDistance away (within the tolerance)
+     */
+    public void applyAtLeast(BitSet candidates, int guess, int minDistance) {
+        if (guess < 0 || minDistance < 0) {
+            return;
+        }
+        narrow(candidates, guess, minDistance - toleranceKm, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Keep the candidates whose distance from guess is in [fromKm, toKm]
+     */
+    private void narrow(BitSet candidates, int guess, int fromKm, int toKm) {
+        candidates.clear(guess);
+        if (hasRow(guess) || distanceCalc.isFullyComputed()) {
+            candidates.and(inRange(guess, fromKm, toKm));
+            return;
+        }
+
+        // Distances are rounded to whole km, so allow half a km either side
+        double low = fromKm - 0.5;
+        double high = toKm == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY : toKm + 0.5;
+        for (int c = candidates.nextSetBit(0); c >= 0; c = candidates.nextSetBit(c + 1)) {
+            int distance = distanceCalc.cachedDistance(guess, c);
+            if (distance < 0) {
+                GeoJSONParser.DistanceInterval interval = distanceCalc.coarseDistance(guess, c,
+                        (lo, hi) -> hi < low || lo > high || (lo >= low && hi < high));
+                if (interval != null) {
+                    if (interval.low() < low || interval.high() >= high) {
+                        candidates.clear(c);
+                    }
+                    continue;
+                }
+                distance = distanceCalc.distance(guess, c);
+            }
+            if (distance < fromKm || distance > toKm) {
+                candidates.clear(c);
+            }
+        }
+    }
+
+    /**
+     * Countries whose distance from guess is within the tolerance of distance
+     */
+    public BitSet atDistance(int guess, int distance) {
+        return inRange(guess, distance - toleranceKm, distance + toleranceKm);
+    }
+
+    /**
+     * Countries whose distance from guess is in [fromKm, toKm]
+     */
+    private BitSet inRange(int guess, int fromKm, int toKm) {
+        ensureRow(guess);
+        int[] order = orderByDistance[guess];
+        int[] sorted = sortedDistances[guess];
+
+        int from = lowerBound(sorted, fromKm);
+        int to = toKm == Integer.MAX_VALUE ? sorted.length : lowerBound(sorted, toKm + 1);
+
+        BitSet result = new BitSet(countries);
+        for (int i = from; i < to; i++) {
+            result.set(order[i]);
+        }
+        return result;
+    }
+
+    private synchronized boolean hasRow(int guess) {
+        return orderByDistance[guess] != null;
+    }
+
+    private synchronized void ensureRow(int guess) {
+        if (orderByDistance[guess] != null) {
+            return;
+        }
+
+        long[] packed = new long[countries];
+        for (int c = 0; c < countries; c++) {
+            // Distance in the high bits, id in the low bits: one sort orders both
+            packed[c] = ((long) distanceCalc.getDistance(guess, c) << 32) | c;
+        }
+        Arrays.sort(packed);
+
+        int[] order = new int[countries];
+        int[] sorted = new int[countries];
+        for (int i = 0; i < countries; i++) {
+            order[i] = (int) packed[i];
+            sorted[i] = (int) (packed[i] >> 32);
+        }
+        sortedDistances[guess] = sorted;
+        orderByDistance[guess] = order;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int getToleranceKm() {
+        return toleranceKm;
+    }
+}
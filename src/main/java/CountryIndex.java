@@ -0,0 +1,161 @@
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.strtree.AbstractNode;
+import org.locationtech.jts.index.strtree.Boundable;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.*;
+
+/**
+ * STRtree over country envelopes answering range and k-nearest queries by
+ * branch-and-bound: subtrees whose envelope bound already rules them out
+ * are never visited, and exact distances are only computed for leaves
+ * that the bounds cannot decide.
+ */
+public class CountryIndex {
+
+    private final GeoJSONParser geoParser;
+    private final STRtree tree;
+
+    /**
+     * Where exact (rounded, km) distances come from, typically a caching calculator
+     */
+    public interface DistanceSource {
+        /**
+         * Distance if it is already known, -1 otherwise
+         */
+        int cachedDistance(int country1, int country2);
+
+        int distance(int country1, int country2);
+    }
+
+    public CountryIndex(GeoJSONParser geoParser) {
+        this.geoParser = geoParser;
+        this.tree = new STRtree();
+
+        CountryRegistry registry = geoParser.getRegistry();
+        for (int id = 0; id < registry.size(); id++) {
+            tree.insert(geoParser.getEnvelope(id), id);
+        }
+        tree.build();
+    }
+
+    /**
+     * Ids of all countries whose distance from center is within [minDistance, maxDistance] km.
+     * Exact distances are only requested for countries that neither the envelope
+     * bounds nor the level-of-detail shapes can decide.
+     */
+    public List<Integer> withinRange(int center, int minDistance, int maxDistance, DistanceSource distances) {
+        List<Integer> result = new ArrayList<>();
+        if (tree.getRoot() == null) {
+            return result;
+        }
+
+        Envelope centerEnvelope = geoParser.getEnvelope(center);
+        Deque<Boundable> stack = new ArrayDeque<>();
+        stack.push(tree.getRoot());
+
+        while (!stack.isEmpty()) {
+            Boundable boundable = stack.pop();
+            double lowerBound = geoParser.envelopeLowerBound(centerEnvelope, (Envelope) boundable.getBounds());
+            // Distances are rounded to whole km, so allow half a km either side
+            if (lowerBound > maxDistance + 0.5) {
+                continue; // Entire subtree is too far away
+            }
+
+            if (boundable instanceof AbstractNode node) {
+                for (Object child : node.getChildBoundables()) {
+                    stack.push((Boundable) child);
+                }
+                continue;
+            }
+
+            int country = (Integer) ((ItemBoundable) boundable).getItem();
+            if (country == center || geoParser.distanceUpperBound(center, country) < minDistance - 0.5) {
+                continue;
+            }
+
+            int distance = distances.cachedDistance(center, country);
+            if (distance < 0) {
+                // Distances are rounded to whole km, so allow half a km either side
+                double low = minDistance - 0.5;
+                double high = maxDistance + 0.5;
+                GeoJSONParser.DistanceInterval interval = geoParser.coarseDistance(center, country,
+                        (lo, hi) -> hi < low || lo > high || (lo >= low && hi < high));
+                if (interval != null) {
+                    if (interval.low() >= low && interval.high() < high) {
+                        result.add(country);
+                    }
+                    continue;
+                }
+                distance = distances.distance(center, country);
+            }
+
+            if (distance >= minDistance && distance <= maxDistance) {
+                result.add(country);
+            }
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Ids of the k countries closest to center, nearest first, skipping excluded ids
+     */
+    public List<Integer> nearest(int center, int k, BitSet exclude, DistanceSource distances) {
+        List<Integer> result = new ArrayList<>();
+        if (tree.getRoot() == null) {
+            return result;
+        }
+
+        Envelope centerEnvelope = geoParser.getEnvelope(center);
+
+        // Best-first search: entries are nodes or countries keyed by a lower bound,
+        // or countries keyed by their exact distance
+        PriorityQueue<SearchEntry> queue = new PriorityQueue<>(
+                Comparator.comparingDouble((SearchEntry e) -> e.distance)
+                        .thenComparing(e -> !e.exact)
+                        .thenComparingInt(e -> e.country));
+        queue.add(new SearchEntry(tree.getRoot(), -1, 0, false));
+
+        while (!queue.isEmpty() && result.size() < k) {
+            SearchEntry entry = queue.poll();
+
+            if (entry.exact) {
+                result.add(entry.country);
+            } else if (entry.boundable instanceof AbstractNode node) {
+                for (Object child : node.getChildBoundables()) {
+                    Boundable boundable = (Boundable) child;
+                    double lowerBound = geoParser.envelopeLowerBound(centerEnvelope, (Envelope) boundable.getBounds());
+                    int country = boundable instanceof ItemBoundable item ? (Integer) item.getItem() : -1;
+                    if (country == center || (country >= 0 && exclude != null && exclude.get(country))) {
+                        continue;
+                    }
+                    queue.add(new SearchEntry(boundable, country, lowerBound, false));
+                }
+            } else {
+                int distance = distances.distance(center, entry.country);
+                if (distance >= 0) {
+                    queue.add(new SearchEntry(null, entry.country, distance, true));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static class SearchEntry {
+        Boundable boundable;
+        int country;
+        double distance;
+        boolean exact;
+
+        SearchEntry(Boundable boundable, int country, double distance, boolean exact) {
+            this.boundable = boundable;
+            this.country = country;
+            this.distance = distance;
+            this.exact = exact;
+        }
+    }
+}
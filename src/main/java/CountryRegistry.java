@@ -0,0 +1,149 @@
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns every loaded country a dense int id (0..size-1) so hot paths can
+ * work with array indices instead of String keys, and resolves any spelling
+ * of a country (case, accents, punctuation, known aliases) to that id.
+ */
+public class CountryRegistry {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    // Spellings the game uses that often differ from GeoJSON properties
+    private static final String[][] BUILT_IN_ALIASES = {
+            {"Czechia", "Czech Republic"},
+            {"Côte d'Ivoire", "Ivory Coast"},
+            {"Eswatini", "Swaziland"},
+            {"North Macedonia", "Macedonia"},
+            {"Myanmar", "Burma"},
+            {"Cabo Verde", "Cape Verde"},
+            {"Timor-Leste", "East Timor"},
+            {"Türkiye", "Turkey"},
+            {"United States", "United States of America", "USA"},
+            {"United Kingdom", "UK", "Great Britain"},
+            {"Democratic Republic of the Congo", "DR Congo", "DRC", "Congo-Kinshasa"},
+            {"Republic of the Congo", "Congo", "Congo-Brazzaville"},
+            {"Vatican City", "Vatican", "Holy See"},
+            {"Palestine", "State of Palestine"},
+            {"South Korea", "Korea, Republic of", "Republic of Korea"},
+            {"North Korea", "Korea, Democratic People's Republic of"},
+            {"Russia", "Russian Federation"},
+            {"Laos", "Lao PDR", "Lao People's Democratic Republic"},
+            {"Bosnia and Herzegovina", "Bosnia & Herzegovina"},
+    };
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final Map<String, Integer> normalizedIds;
+
+    public CountryRegistry(Collection<String> countryNames) {
+        this(countryNames, Map.of());
+    }
+
+    /**
+     * @param aliases other names per country, e.g. every name property of its feature
+     */
+    public CountryRegistry(Collection<String> countryNames, Map<String, List<String>> aliases) {
+        // Sorted so ids are stable for the same dataset
+        this.names = countryNames.stream().sorted().toArray(String[]::new);
+        this.ids = new HashMap<>();
+        this.normalizedIds = new HashMap<>();
+
+        for (int i = 0; i < names.length; i++) {
+            ids.put(names[i], i);
+            normalizedIds.putIfAbsent(normalize(names[i]), i);
+        }
+
+        // Aliases never override a real country name
+        for (int i = 0; i < names.length; i++) {
+            for (String alias : aliases.getOrDefault(names[i], List.of())) {
+                normalizedIds.putIfAbsent(normalize(alias), i);
+            }
+        }
+
+        // Every spelling in a built-in group points to whichever one the dataset uses
+        for (String[] group : BUILT_IN_ALIASES) {
+            int id = -1;
+            for (String spelling : group) {
+                Integer found = normalizedIds.get(normalize(spelling));
+                if (found != null) {
+                    id = found;
+                    break;
+                }
+            }
+            if (id >= 0) {
+                for (String spelling : group) {
+                    normalizedIds.putIfAbsent(normalize(spelling), id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Case-, accent- and punctuation-insensitive key: "Côte d'Ivoire" -> "cotedivoire"
+     */
+    public static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    /**
+     * Id for any spelling of a country name, or -1
+     */
+    public int getId(String countryName) {
+        // Exact canonical names skip normalization entirely
+        Integer id = ids.get(countryName);
+        if (id == null) {
+            id = normalizedIds.get(normalize(countryName));
+        }
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Dataset spelling for any known spelling, or null
+     */
+    public String getCanonicalName(String countryName) {
+        int id = getId(countryName);
+        return id < 0 ? null : names[id];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Hash of the id -> name assignment, so files keyed by id can detect a
+     * different dataset
+     */
+    public int namesHash() {
+        int hash = names.length;
+        for (String name : names) {
+            hash = 31 * hash + name.hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Ids of the given names; unknown names are ignored
+     */
+    public BitSet toIdSet(Collection<String> countryNames) {
+        BitSet result = new BitSet(names.length);
+        if (countryNames != null) {
+            for (String name : countryNames) {
+                int id = getId(name);
+                if (id >= 0) {
+                    result.set(id);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Strategy for border-to-border distances between countries (in kilometers).
+ * GeoJSONParser prepares each country once per engine and caches the result.
+ */
+public interface DistanceEngine {
+
+    /**
+     * Engine-specific precomputed form of a country geometry
+     */
+    interface Shape {
+        Geometry getGeometry();
+    }
+
+    Shape prepare(Geometry geometry);
+
+    /**
+     * Closest border distance between two prepared countries
+     */
+    double distance(Shape shape1, Shape shape2);
+
+    /**
+     * Lower bound on the distance between any two points inside the bounding boxes
+     */
+    double envelopeLowerBound(Envelope envelope1, Envelope envelope2);
+
+    /**
+     * Distance between two single points
+     */
+    double pointDistance(Coordinate c1, Coordinate c2);
+
+    /**
+     * Upper bound on the Hausdorff distance between the borders of two
+     * prepared countries, with borders drawn the way distance() draws them:
+     * no border point of either is farther than this from the other's border.
+     * Borders are sampled at most stepKm apart.
+     */
+    double borderHausdorffDistance(Shape shape1, Shape shape2, double stepKm);
+}
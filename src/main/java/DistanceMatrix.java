@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Symmetric country-to-country distance table (km) stored as a packed
+ * upper triangle of floats. Entries not yet computed hold NaN.
+ *
+ * The table lives either on the heap or in a memory-mapped file. The file
+ * layout is a header followed by one fixed-width float record per id pair,
+ * at the pair's position in the triangle:
+ *   magic "GLDM", int version, int size, int reserved, long dataset key,
+ *   then size * (size - 1) / 2 floats
+ * Computed distances are written straight into the mapping, so they persist
+ * across runs without an explicit save.
+ *
+ * Reads and writes of single entries are safe from any thread;
+ * computeIfAbsent guarantees each pair is computed only once.
+ */
+public class DistanceMatrix {
+
+    private static final int MAGIC = 0x474C444D; // "GLDM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int LOCK_STRIPES = 256;
+
+    private final int size;
+    private final FloatBuffer distances;
+    private final MappedByteBuffer mapped;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicInteger filled = new AtomicInteger();
+
+    public DistanceMatrix(int size) {
+        this.size = size;
+        initLocks();
+        this.distances = FloatBuffer.allocate(pairCount(size));
+        this.mapped = null;
+        clear();
+    }
+
+    private DistanceMatrix(int size, MappedByteBuffer mapped) {
+        this.size = size;
+        this.mapped = mapped;
+        this.distances = mapped.slice(HEADER_BYTES, 4 * pairCount(size)).asFloatBuffer();
+        initLocks();
+    }
+
+    private void initLocks() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Open (or create) a file-backed table. A file for another size or dataset
+     * key is reset to empty; otherwise every previously computed pair is kept.
+     */
+    public static DistanceMatrix open(Path file, int size, long datasetKey) throws IOException {
+        long bytes = HEADER_BYTES + 4L * pairCount(size);
+        MappedByteBuffer buffer;
+        boolean valid;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            valid = channel.size() == bytes;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        }
+
+        valid = valid && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == size && buffer.getLong(16) == datasetKey;
+
+        DistanceMatrix matrix = new DistanceMatrix(size, buffer);
+        if (valid) {
+            matrix.countFilled();
+        } else {
+            matrix.clear();
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, size);
+            buffer.putInt(12, 0);
+            buffer.putLong(16, datasetKey);
+        }
+        return matrix;
+    }
+
+    private static int pairCount(int size) {
+        return size * (size - 1) / 2;
+    }
+
+    private void clear() {
+        for (int i = 0; i < distances.capacity(); i++) {
+            distances.put(i, Float.NaN);
+        }
+        filled.set(0);
+    }
+
+    private void countFilled() {
+        int count = 0;
+        for (int i = 0; i < distances.capacity(); i++) {
+            if (!Float.isNaN(distances.get(i))) {
+                count++;
+            }
+        }
+        filled.set(count);
+    }
+
+    /**
+     * Position of the pair (i, j), i != j, in the packed triangle
+     */
+    private int index(int i, int j) {
+        if (i > j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        return i * (2 * size - i - 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Distance in km, 0 on the diagonal, NaN if not computed yet
+     */
+    public float get(int i, int j) {
+        if (i == j) {
+            return 0f;
+        }
+        return distances.get(index(i, j));
+    }
+
+    public void set(int i, int j, float distance) {
+        if (i == j) {
+            return;
+        }
+        int index = index(i, j);
+        synchronized (locks[index % LOCK_STRIPES]) {
+            store(index, distance);
+        }
+    }
+
+    private void store(int index, float distance) {
+        if (Float.isNaN(distances.get(index))) {
+            filled.incrementAndGet();
+        }
+        distances.put(index, distance);
+    }
+
+    /**
+     * Computes distances for pairs missing from the table
+     */
+    public interface PairFunction {
+        float compute(int i, int j);
+    }
+
+    /**
+     * Cached distance, computing and storing it first if missing. Threads
+     * asking for the same missing pair wait for one computation instead of
+     * repeating it; pairs in other lock stripes are not blocked.
+     */
+    public float computeIfAbsent(int i, int j, PairFunction function) {
+        if (i == j) {
+            return 0f;
+        }
+        int index = index(i, j);
+        // A float write is atomic, so a non-NaN read is a finished value
+        float distance = distances.get(index);
+        if (!Float.isNaN(distance)) {
+            return distance;
+        }
+        synchronized (locks[index % LOCK_STRIPES]) {
+            distance = distances.get(index);
+            if (Float.isNaN(distance)) {
+                distance = function.compute(i, j);
+                store(index, distance);
+            }
+            return distance;
+        }
+    }
+
+    public boolean contains(int i, int j) {
+        return !Float.isNaN(get(i, j));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of computed pairs
+     */
+    public int filledPairs() {
+        return filled.get();
+    }
+
+    public int totalPairs() {
+        return distances.capacity();
+    }
+
+    /**
+     * Whether the table is backed by a file
+     */
+    public boolean isPersistent() {
+        return mapped != null;
+    }
+
+    /**
+     * Write file-backed entries to disk now (the OS also does so on its own)
+     */
+    public void flush() {
+        if (mapped != null) {
+            mapped.force();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes every country pair in parallel on a ForkJoinPool.
+ * Each finished row of the triangle is appended to a checkpoint file, so
+ * a killed run picks up from the rows it already completed.
+ */
+public class DistanceMatrixGenerator {
+
+    private static final int CHECKPOINT_MAGIC = 0x474C4432; // "GLD2"
+
+    private final GeoJSONParser geoParser;
+    private final CountryRegistry registry;
+    private final AtomicLong pairsDone = new AtomicLong();
+
+    private DistanceMatrix matrix;
+    private DataOutputStream checkpoint;
+
+    public DistanceMatrixGenerator(GeoJSONParser geoParser) {
+        this.geoParser = geoParser;
+        this.registry = geoParser.getRegistry();
+    }
+
+    /**
+     * Fill every missing pair of the matrix in parallel, without CSV output or checkpoints
+     */
+    public void computeAll(DistanceMatrix matrix) {
+        this.matrix = matrix;
+        int total = registry.size();
+        for (int id = 0; id < total; id++) {
+            geoParser.getDistanceShape(id);
+        }
+
+        checkpoint = null;
+        ForkJoinPool.commonPool().invoke(new RowTask(0, total, new boolean[total]));
+    }
+
+    /**
+     * Fill every missing pair of the matrix and write it as CSV.
+     * Progress is checkpointed to outputCsvPath + ".checkpoint".
+     */
+    public void generate(DistanceMatrix matrix, String outputCsvPath) throws IOException {
+        this.matrix = matrix;
+        int total = registry.size();
+        long totalPairs = (long) total * (total - 1) / 2;
+
+        // Build any lazily loaded geometry and engine shape up front so workers only read shared state
+        for (int id = 0; id < total; id++) {
+            geoParser.getDistanceShape(id);
+        }
+
+        Path checkpointPath = Path.of(outputCsvPath + ".checkpoint");
+        boolean[] rowDone = resumeFromCheckpoint(checkpointPath);
+        long resumed = pairsDone.get();
+        if (resumed > 0) {
+            System.out.printf("Resuming: %d/%d pairs restored from checkpoint%n", resumed, totalPairs);
+        }
+
+        System.out.println("Generating distance matrix on " +
+                ForkJoinPool.commonPool().getParallelism() + " threads...");
+        long start = System.nanoTime();
+
+        Thread progress = new Thread(() -> reportProgress(totalPairs, resumed, start));
+        progress.setDaemon(true);
+        progress.start();
+
+        try (DataOutputStream out = openCheckpoint(checkpointPath, resumed > 0)) {
+            checkpoint = out;
+            ForkJoinPool.commonPool().invoke(new RowTask(0, total, rowDone));
+        } finally {
+            progress.interrupt();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long computed = pairsDone.get() - resumed;
+        System.out.printf("Computed %d pairs in %.1f s (%.0f pairs/sec)%n",
+                computed, seconds, computed / Math.max(seconds, 1e-9));
+
+        writeCsv(outputCsvPath);
+        Files.deleteIfExists(checkpointPath);
+
+        System.out.println("Distance matrix saved to: " + outputCsvPath);
+        System.out.println("Total pairs: " + totalPairs);
+    }
+
+    /**
+     * Splits a range of rows in half until a single row is left.
+     * Rows shrink along the triangle, so stealing keeps the cores balanced.
+     */
+    @SuppressWarnings("serial")
+    private class RowTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final boolean[] rowDone;
+
+        RowTask(int from, int to, boolean[] rowDone) {
+            this.from = from;
+            this.to = to;
+            this.rowDone = rowDone;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowTask(from, mid, rowDone), new RowTask(mid, to, rowDone));
+            } else if (!rowDone[from]) {
+                computeRow(from);
+            }
+        }
+    }
+
+    private void computeRow(int i) {
+        int total = registry.size();
+        float[] row = new float[total - i - 1];
+
+        for (int j = i + 1; j < total; j++) {
+            // Pairs already being computed by a live lookup are not computed twice
+            row[j - i - 1] = matrix.computeIfAbsent(i, j,
+                    (a, b) -> (float) geoParser.calculateDistance(a, b));
+        }
+
+        if (checkpoint != null) {
+            synchronized (this) {
+                appendCheckpoint(i, row);
+            }
+        }
+        pairsDone.addAndGet(row.length);
+    }
+
+    private DataOutputStream openCheckpoint(Path checkpointPath, boolean append) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(checkpointPath.toFile(), append)));
+        if (!append) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(registry.size());
+            out.writeLong(geoParser.getDatasetKey());
+            out.flush();
+        }
+        return out;
+    }
+
+    private void appendCheckpoint(int i, float[] row) {
+        try {
+            checkpoint.writeInt(i);
+            for (float distance : row) {
+                checkpoint.writeFloat(distance);
+            }
+            checkpoint.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Restore completed rows; a checkpoint for a different dataset (source,
+     * countries or distance engine) or with a corrupt row is discarded, and a
+     * truncated trailing row (killed mid-write) is ignored.
+     */
+    private boolean[] resumeFromCheckpoint(Path checkpointPath) throws IOException {
+        int total = registry.size();
+        if (!Files.exists(checkpointPath)) {
+            return new boolean[total];
+        }
+
+        // Rows are only applied once the whole file has checked out
+        float[][] rows = new float[total][];
+        long validBytes = 16;
+        String invalid = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(checkpointPath)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != total
+                    || in.readLong() != geoParser.getDatasetKey()) {
+                invalid = "built for other data";
+            }
+
+            while (invalid == null) {
+                int i = in.readInt();
+                if (i < 0 || i >= total) {
+                    invalid = "row " + i + " out of range";
+                    break;
+                }
+                float[] row = new float[total - i - 1];
+                for (int k = 0; k < row.length; k++) {
+                    row[k] = in.readFloat();
+                }
+                rows[i] = row;
+                validBytes += 4 + 4L * row.length;
+            }
+        } catch (EOFException e) {
+            // End of the complete rows
+        }
+
+        if (invalid != null) {
+            System.out.println("Discarding checkpoint (" + invalid + "): " + checkpointPath);
+            Files.delete(checkpointPath);
+            return new boolean[total];
+        }
+
+        // Drop a partial trailing record so appends start on a row boundary
+        try (RandomAccessFile file = new RandomAccessFile(checkpointPath.toFile(), "rw")) {
+            file.setLength(validBytes);
+        }
+
+        boolean[] rowDone = new boolean[total];
+        for (int i = 0; i < total; i++) {
+            if (rows[i] == null) {
+                continue;
+            }
+            for (int j = i + 1; j < total; j++) {
+                matrix.set(i, j, rows[i][j - i - 1]);
+            }
+            rowDone[i] = true;
+            pairsDone.addAndGet(rows[i].length);
+        }
+        return rowDone;
+    }
+
+    private void reportProgress(long totalPairs, long resumed, long start) {
+        try {
+            while (true) {
+                Thread.sleep(2000);
+                long done = pairsDone.get();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Progress: %d/%d pairs calculated (%.0f pairs/sec)%n",
+                        done, totalPairs, (done - resumed) / seconds);
+            }
+        } catch (InterruptedException e) {
+            // Generation finished
+        }
+    }
+
+    /**
+     * Single buffered pass over the finished matrix, both directions per pair
+     */
+    private void writeCsv(String outputCsvPath) throws IOException {
+        int total = registry.size();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputCsvPath), 1 << 16)) {
+            writer.write("Country1,Country2,Distance\n");
+
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < total; i++) {
+                for (int j = i + 1; j < total; j++) {
+                    long distance = Math.round(matrix.get(i, j));
+                    appendLine(line, registry.getName(i), registry.getName(j), distance);
+                    appendLine(line, registry.getName(j), registry.getName(i), distance);
+                    writer.append(line);
+                    line.setLength(0);
+                }
+            }
+        }
+    }
+
+    private static void appendLine(StringBuilder line, String country1, String country2, long distance) {
+        line.append(country1).append(',').append(country2).append(',').append(distance).append('\n');
+    }
+}
@@ -0,0 +1,282 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Where each feature of a GeoJSON FeatureCollection sits in the file. One
+ * pass over the memory-mapped bytes skips strings and counts brackets, but
+ * parses no numbers and builds nothing, so it runs at close to read speed.
+ * For every feature it records the byte range of the "properties" object, the
+ * byte range of the "geometry" object and the geometry's "type"; the JSON in a
+ * range is only parsed when a caller asks for it.
+ */
+public class FeatureIndex {
+
+    private final MappedByteBuffer data;
+    private int count;
+    private int[] properties = new int[256];   // start, end pairs; -1 if absent
+    private int[] geometries = new int[256];   // start, end pairs; -1 if absent
+    private String[] geometryTypes = new String[128];
+
+    private FeatureIndex(MappedByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Map a GeoJSON file and index its features
+     */
+    public static FeatureIndex scan(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        FeatureIndex index = new FeatureIndex(data);
+        index.scanCollection();
+        return index;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * The feature's "properties" object, or null if it has none
+     */
+    public Reader getProperties(int feature) {
+        return reader(properties, feature);
+    }
+
+    /**
+     * The feature's "geometry" object, or null if it has none
+     */
+    public Reader getGeometry(int feature) {
+        return reader(geometries, feature);
+    }
+
+    /**
+     * The geometry's "type" member (e.g. "MultiPolygon"), or null
+     */
+    public String getGeometryType(int feature) {
+        return geometryTypes[feature];
+    }
+
+    private Reader reader(int[] ranges, int feature) {
+        int start = ranges[2 * feature];
+        if (start < 0) {
+            return null;
+        }
+        byte[] json = new byte[ranges[2 * feature + 1] - start];
+        data.get(start, json);
+        return new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8);
+    }
+
+    private void scanCollection() throws IOException {
+        int pos = expect(skipWhitespace(0), '{');
+        pos = skipWhitespace(pos);
+        if (peek(pos) == '}') {
+            return;
+        }
+        while (true) {
+            int keyEnd = skipString(pos);
+            boolean features = keyEquals(pos, keyEnd, "features");
+            pos = skipWhitespace(expect(skipWhitespace(keyEnd), ':'));
+
+            if (features && peek(pos) == '[') {
+                pos = scanFeatures(pos);
+            } else {
+                pos = skipValue(pos);
+            }
+
+            pos = skipWhitespace(pos);
+            if (peek(pos) == '}') {
+                return;
+            }
+            pos = skipWhitespace(expect(pos, ','));
+        }
+    }
+
+    private int scanFeatures(int pos) throws IOException {
+        pos = skipWhitespace(pos + 1);
+        if (peek(pos) == ']') {
+            return pos + 1;
+        }
+        while (true) {
+            pos = peek(pos) == '{' ? scanFeature(pos) : skipValue(pos);
+            pos = skipWhitespace(pos);
+            if (peek(pos) == ']') {
+                return pos + 1;
+            }
+            pos = skipWhitespace(expect(pos, ','));
+        }
+    }
+
+    private int scanFeature(int pos) throws IOException {
+        int feature = count++;
+        if (2 * count > properties.length) {
+            properties = Arrays.copyOf(properties, properties.length * 2);
+            geometries = Arrays.copyOf(geometries, geometries.length * 2);
+            geometryTypes = Arrays.copyOf(geometryTypes, geometryTypes.length * 2);
+        }
+        properties[2 * feature] = -1;
+        geometries[2 * feature] = -1;
+
+        pos = skipWhitespace(pos + 1);
+        if (peek(pos) == '}') {
+            return pos + 1;
+        }
+        while (true) {
+            int keyEnd = skipString(pos);
+            boolean isProperties = keyEquals(pos, keyEnd, "properties");
+            boolean isGeometry = keyEquals(pos, keyEnd, "geometry");
+            int start = skipWhitespace(expect(skipWhitespace(keyEnd), ':'));
+            pos = skipValue(start);
+
+            if (isProperties && peek(start) == '{') {
+                properties[2 * feature] = start;
+                properties[2 * feature + 1] = pos;
+            } else if (isGeometry && peek(start) == '{') {
+                geometries[2 * feature] = start;
+                geometries[2 * feature + 1] = pos;
+                geometryTypes[feature] = geometryType(start);
+            }
+
+            pos = skipWhitespace(pos);
+            if (peek(pos) == '}') {
+                return pos + 1;
+            }
+            pos = skipWhitespace(expect(pos, ','));
+        }
+    }
+
+    /**
+     * The string value of a geometry object's "type" member, or null
+     */
+    private String geometryType(int pos) throws IOException {
+        pos = skipWhitespace(pos + 1);
+        while (peek(pos) == '"') {
+            int keyEnd = skipString(pos);
+            int value = skipWhitespace(expect(skipWhitespace(keyEnd), ':'));
+            int valueEnd = skipValue(value);
+            if (keyEquals(pos, keyEnd, "type") && peek(value) == '"') {
+                byte[] type = new byte[valueEnd - value - 2];
+                data.get(value + 1, type);
+                return new String(type, StandardCharsets.UTF_8);
+            }
+            pos = skipWhitespace(valueEnd);
+            if (peek(pos) != ',') {
+                break;
+            }
+            pos = skipWhitespace(pos + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Position just past the value starting at pos
+     */
+    private int skipValue(int pos) throws IOException {
+        byte first = peek(pos);
+        if (first == '"') {
+            return skipString(pos);
+        }
+        if (first != '{' && first != '[') {
+            // Number, true, false or null
+            while (pos < data.limit()) {
+                byte b = data.get(pos);
+                if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+
+        int depth = 0;
+        int limit = data.limit();
+        while (pos < limit) {
+            byte b = data.get(pos);
+            if (b == '"') {
+                pos = skipString(pos);
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+        throw malformed(pos, "unterminated object or array");
+    }
+
+    /**
+     * Position just past the string starting (with its quote) at pos
+     */
+    private int skipString(int pos) throws IOException {
+        expect(pos, '"');
+        int limit = data.limit();
+        for (pos++; pos < limit; pos++) {
+            byte b = data.get(pos);
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return pos + 1;
+            }
+        }
+        throw malformed(pos, "unterminated string");
+    }
+
+    /**
+     * Whether the string spanning [start, end) (quotes included) is exactly the ASCII key
+     */
+    private boolean keyEquals(int start, int end, String key) {
+        if (end - start - 2 != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (data.get(start + 1 + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipWhitespace(int pos) {
+        int limit = data.limit();
+        while (pos < limit) {
+            byte b = data.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private byte peek(int pos) throws IOException {
+        if (pos >= data.limit()) {
+            throw malformed(pos, "unexpected end of file");
+        }
+        return data.get(pos);
+    }
+
+    private int expect(int pos, char expected) throws IOException {
+        if (peek(pos) != expected) {
+            throw malformed(pos, "expected '" + expected + "'");
+        }
+        return pos + 1;
+    }
+
+    private static IOException malformed(int pos, String problem) {
+        return new IOException("Malformed GeoJSON at byte " + pos + ": " + problem);
+    }
+}
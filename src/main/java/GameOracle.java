@@ -0,0 +1,24 @@
+/**
+ * Something the solver can play against: the real game in a browser
+ * (GlobleBot) or an in-process simulation (SimulatedGame).
+ */
+public interface GameOracle {
+
+    /**
+     * Submit a guess
+     */
+    void makeGuess(String countryName);
+
+    /**
+     * Result of the most recent guess, or null if it could not be read
+     */
+    GuessResult getLastGuessResult();
+
+    /**
+     * Whether a result means the game is won. The browser cannot tell a win from
+     * a 0 km neighbour, so by default any 0 or missing distance counts.
+     */
+    default boolean isSolved(GuessResult result) {
+        return result.getDistanceAsInt() == 0 || result.getDistanceAsInt() == -1;
+    }
+}
@@ -1,9 +1,17 @@
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.locationtech.jts.geom.*;
-import org.locationtech.jts.operation.distance.DistanceOp;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
 
 /**
  * Parses GeoJSON data and creates JTS geometries for distance calculations.
@@ -11,19 +19,73 @@ import java.util.*;
  */
 public class GeoJSONParser {
 
+    private static final String[] NAME_FIELDS = {"name", "NAME", "ADMIN", "admin", "NAME_LONG", "name_long"};
+
+    // Simplification tolerances (degrees) for the level-of-detail shapes, coarsest first
+    private static final double[] LOD_TOLERANCES = {1.0, 0.25, 0.05};
+
+    private static final Metrics.Timer LOAD = Metrics.timer("load.geojson");
+    private static final Metrics.Timer LOAD_SNAPSHOT = Metrics.timer("load.snapshot");
+    private static final Metrics.Timer LOAD_INDEX = Metrics.timer("load.index");
+    private static final Metrics.Timer PARSE_FEATURE = Metrics.timer("load.feature");
+    private static final Metrics.Timer EXACT_DISTANCE = Metrics.timer("distance.exact");
+
     private Map<String, Geometry> countryGeometries;
+    private Map<String, List<String>> countryAliases;
     private GeometryFactory geometryFactory;
+    private GeometryFactory packedGeometryFactory;
+    private GeometrySnapshot snapshot;
+    private FeatureIndex featureIndex;
+    private int[] countryFeatures;                      // feature index by country id
+    private AtomicReferenceArray<Geometry> featureGeometries;
+    private Object[] featureLocks;
+    private long sourceChecksum;
+    private CountryRegistry registry;
+    // Per-country caches are filled lazily from any thread; the first value
+    // published wins, so every thread sees one fully built object
+    private AtomicReferenceArray<Envelope> envelopes;
+    private CountryIndex spatialIndex;
+    private DistanceEngine distanceEngine;
+    private AtomicReferenceArray<DistanceEngine.Shape> shapes;
+    private AtomicReferenceArray<LodShape> lodShapes;   // level * countries + id
+    private boolean levelOfDetail = true;
+    private boolean quantizedCoordinates;
+    private QuantizedCoordinateStore coordinateStore;   // set while quantizedCoordinates is on
 
     public GeoJSONParser() {
         this.countryGeometries = new HashMap<>();
+        this.countryAliases = new HashMap<>();
         this.geometryFactory = new GeometryFactory();
+        this.packedGeometryFactory = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+        this.distanceEngine = new SphericalDistanceEngine();
+    }
+
+    /**
+     * Switch how distances are computed (default: great-circle on a sphere)
+     */
+    public void setDistanceEngine(DistanceEngine distanceEngine) {
+        this.distanceEngine = distanceEngine;
+        if (registry != null) {
+            resetShapes();
+        }
+    }
+
+    public DistanceEngine getDistanceEngine() {
+        return distanceEngine;
     }
 
     /**
      * Load countries from GeoJSON file
      */
     public void loadFromFile(String filePath) throws IOException {
+        long start = LOAD.start();
         System.out.println("Loading GeoJSON from: " + filePath);
+        featureIndex = null;
+        snapshot = null;
+        sourceChecksum = 0;
+        coordinateStore = newCoordinateStore();
+        countryGeometries = new HashMap<>();
+        countryAliases = new HashMap<>();
 
         // Read JSON file
         BufferedReader reader = new BufferedReader(new FileReader(filePath));
@@ -44,6 +106,7 @@ public class GeoJSONParser {
                 if (countryName == null) {
                     continue;
                 }
+                recordAliases(countryName, getAllNames(properties));
 
                 // Get geometry
                 JsonObject geometry = feature.getAsJsonObject("geometry");
@@ -56,6 +119,416 @@ public class GeoJSONParser {
 
             System.out.println("Loaded " + countryGeometries.size() + " countries");
         }
+
+        setRegistry(countryGeometries.keySet());
+        LOAD.stop(start);
+    }
+
+    /**
+     * Load countries from GeoJSON file without building the JsonObject tree.
+     * Coordinates are written straight into packed double[] sequences.
+     */
+    public void loadFromFileStreaming(String filePath) throws IOException {
+        long start = LOAD.start();
+        System.out.println("Streaming GeoJSON from: " + filePath);
+        featureIndex = null;
+        snapshot = null;
+        sourceChecksum = 0;
+        coordinateStore = newCoordinateStore();
+        countryGeometries = new HashMap<>();
+        countryAliases = new HashMap<>();
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(filePath), StandardCharsets.UTF_8), 1 << 16)) {
+            streamFeatures(reader, countryGeometries::put);
+        }
+        setRegistry(countryGeometries.keySet());
+        LOAD.stop(start);
+
+        System.out.println("Loaded " + countryGeometries.size() + " countries");
+    }
+
+    /**
+     * Load countries from a binary snapshot of the GeoJSON file. The snapshot is
+     * (re)built from the GeoJSON when it is missing or the source has changed;
+     * geometries are then built lazily on first access.
+     */
+    public void loadWithSnapshot(String geoJsonPath, String snapshotPath) throws IOException {
+        long start = LOAD_SNAPSHOT.start();
+        try {
+            Path source = Path.of(geoJsonPath);
+            Path snapshotFile = Path.of(snapshotPath);
+
+            GeometrySnapshot loaded = GeometrySnapshot.open(snapshotFile, source, packedGeometryFactory);
+            if (loaded == null) {
+                System.out.println("Snapshot missing or stale, rebuilding: " + snapshotPath);
+                // Snapshots hold full precision, so this run matches the ones that map it
+                boolean quantized = quantizedCoordinates;
+                quantizedCoordinates = false;
+                try {
+                    loadFromFileStreaming(geoJsonPath);
+                } finally {
+                    quantizedCoordinates = quantized;
+                }
+                sourceChecksum = GeometrySnapshot.write(snapshotFile, source, countryGeometries, countryAliases);
+                return;
+            }
+
+            snapshot = loaded;
+            featureIndex = null;
+            coordinateStore = null;
+            sourceChecksum = snapshot.getSourceChecksum();
+            countryAliases = snapshot.getAliases();
+            setRegistry(snapshot.getNames());
+            System.out.println("Loaded " + snapshot.size() + " countries from snapshot: " + snapshotPath);
+        } finally {
+            // Includes rebuilds, so the slow path shows up in the timings too
+            LOAD_SNAPSHOT.stop(start);
+        }
+    }
+
+    /**
+     * Load only the names: one scan of the file finds each feature's byte
+     * range, and a country's geometry is parsed from its range on first use.
+     * Suits runs that touch few countries; anything that needs every
+     * geometry (the spatial index, triangulate's bounds) parses them all.
+     */
+    public void loadIndexed(String filePath) throws IOException {
+        long start = LOAD_INDEX.start();
+        System.out.println("Indexing GeoJSON: " + filePath);
+        countryGeometries = new HashMap<>();
+        countryAliases = new HashMap<>();
+        snapshot = null;
+        sourceChecksum = 0;
+        coordinateStore = newCoordinateStore();
+
+        FeatureIndex index = FeatureIndex.scan(Path.of(filePath));
+        Map<String, Integer> features = new HashMap<>();
+        for (int feature = 0; feature < index.size(); feature++) {
+            String type = index.getGeometryType(feature);
+            Reader properties = index.getProperties(feature);
+            if (properties == null || !("Polygon".equals(type) || "MultiPolygon".equals(type))) {
+                continue;
+            }
+
+            String[] names = readCountryNames(new JsonReader(properties));
+            String countryName = firstNonNull(names);
+            if (countryName != null) {
+                recordAliases(countryName, names);
+                features.put(countryName, feature);
+            }
+        }
+        setRegistry(features.keySet());
+
+        featureIndex = index;
+        countryFeatures = new int[registry.size()];
+        for (int id = 0; id < registry.size(); id++) {
+            countryFeatures[id] = features.get(registry.getName(id));
+        }
+        featureGeometries = new AtomicReferenceArray<>(registry.size());
+        featureLocks = new Object[64];
+        Arrays.setAll(featureLocks, i -> new Object());
+        LOAD_INDEX.stop(start);
+
+        System.out.println("Indexed " + registry.size() + " countries");
+    }
+
+    /**
+     * Geometry of an indexed country, parsed exactly once: concurrent first
+     * callers wait for the one parse in progress
+     */
+    private Geometry getIndexedGeometry(int countryId) {
+        Geometry geometry = featureGeometries.get(countryId);
+        if (geometry != null) {
+            return geometry;
+        }
+        synchronized (featureLocks[countryId % featureLocks.length]) {
+            geometry = featureGeometries.get(countryId);
+            if (geometry == null) {
+                long start = PARSE_FEATURE.start();
+                try (JsonReader reader = new JsonReader(featureIndex.getGeometry(countryFeatures[countryId]))) {
+                    geometry = readGeometry(reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not parse the geometry of " + registry.getName(countryId), e);
+                }
+                if (geometry == null) {
+                    throw new IllegalStateException("Unreadable geometry for " + registry.getName(countryId));
+                }
+                // Computed before publishing so readers never fill JTS's lazy envelope concurrently
+                geometry.getEnvelopeInternal();
+                featureGeometries.set(countryId, geometry);
+                PARSE_FEATURE.stop(start);
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * Number of indexed countries whose geometry has been parsed so far
+     */
+    public int getParsedFeatureCount() {
+        if (featureGeometries == null) {
+            return 0;
+        }
+        int parsed = 0;
+        for (int id = 0; id < featureGeometries.length(); id++) {
+            if (featureGeometries.get(id) != null) {
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Read a FeatureCollection and emit each feature's name and geometry as soon as it is read.
+     * Features without a name or with an unsupported geometry are skipped.
+     */
+    public void streamFeatures(Reader in, BiConsumer<String, Geometry> consumer) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("features") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readFeature(reader, consumer);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+    }
+
+    /**
+     * Read a single Feature object; properties may appear before or after the geometry
+     */
+    private void readFeature(JsonReader reader, BiConsumer<String, Geometry> consumer) throws IOException {
+        String[] names = null;
+        Geometry geom = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (key.equals("properties") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                names = readCountryNames(reader);
+            } else if (key.equals("geometry") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                geom = readGeometry(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        String countryName = names == null ? null : firstNonNull(names);
+        if (countryName != null && geom != null) {
+            recordAliases(countryName, names);
+            consumer.accept(countryName, geom);
+        }
+    }
+
+    /**
+     * Streaming counterpart of getAllNames: every name property, in NAME_FIELDS order
+     */
+    private String[] readCountryNames(JsonReader reader) throws IOException {
+        String[] found = new String[NAME_FIELDS.length];
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int field = Arrays.asList(NAME_FIELDS).indexOf(reader.nextName());
+            JsonToken token = reader.peek();
+            if (field >= 0 && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                found[field] = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return found;
+    }
+
+    private static String firstNonNull(String[] names) {
+        for (String name : names) {
+            if (name != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keep the other name properties of a feature as lookup aliases
+     */
+    private void recordAliases(String countryName, String[] names) {
+        List<String> aliases = countryAliases.computeIfAbsent(countryName, k -> new ArrayList<>());
+        for (String name : names) {
+            if (name != null && !name.equals(countryName) && !aliases.contains(name)) {
+                aliases.add(name);
+            }
+        }
+    }
+
+    /**
+     * Streaming counterpart of parseGeometry; "type" may come after "coordinates"
+     */
+    private Geometry readGeometry(JsonReader reader) throws IOException {
+        String type = null;
+        Object coordinates = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (key.equals("type")) {
+                type = reader.nextString();
+            } else if (key.equals("coordinates") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                coordinates = readCoordinates(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null || coordinates == null) {
+            return null;
+        }
+
+        try {
+            switch (type) {
+                case "Polygon":
+                    return buildPolygon(coordinates);
+                case "MultiPolygon":
+                    List<?> polygonList = (List<?>) coordinates;
+                    Polygon[] polygons = new Polygon[polygonList.size()];
+                    for (int i = 0; i < polygons.length; i++) {
+                        polygons[i] = buildPolygon(polygonList.get(i));
+                    }
+                    return packedGeometryFactory.createMultiPolygon(polygons);
+                default:
+                    System.out.println("Unsupported geometry type: " + type);
+                    return null;
+            }
+        } catch (Exception e) {
+            System.out.println("Error parsing geometry: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Polygon buildPolygon(Object rings) {
+        List<?> ringList = (List<?>) rings;
+        LinearRing shell = createPackedRing((double[]) ringList.get(0));
+
+        LinearRing[] holes = new LinearRing[ringList.size() - 1];
+        for (int i = 1; i < ringList.size(); i++) {
+            holes[i - 1] = createPackedRing((double[]) ringList.get(i));
+        }
+
+        return packedGeometryFactory.createPolygon(shell, holes);
+    }
+
+    private LinearRing createPackedRing(double[] lonLat) {
+        CoordinateSequence points = coordinateStore != null ? coordinateStore.add(lonLat)
+                : new PackedCoordinateSequence.Double(lonLat, 2, 0);
+        return packedGeometryFactory.createLinearRing(points);
+    }
+
+    /**
+     * Read a nested coordinates array. Arrays of positions come back as packed
+     * [lon, lat, lon, lat, ...] double[]; any deeper nesting as a List.
+     */
+    private Object readCoordinates(JsonReader reader) throws IOException {
+        reader.beginArray();
+        return readCoordinatesBody(reader);
+    }
+
+    private Object readCoordinatesBody(JsonReader reader) throws IOException {
+        if (!reader.hasNext()) {
+            reader.endArray();
+            return new double[0];
+        }
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            // A bare position, e.g. a Point's coordinates
+            return readPosition(reader);
+        }
+
+        reader.beginArray();
+        if (reader.peek() == JsonToken.NUMBER) {
+            // This array is a ring: its first position is already open
+            return readRing(reader);
+        }
+
+        List<Object> children = new ArrayList<>();
+        children.add(readCoordinatesBody(reader));
+        while (reader.hasNext()) {
+            children.add(readCoordinates(reader));
+        }
+        reader.endArray();
+        return children;
+    }
+
+    private double[] readPosition(JsonReader reader) throws IOException {
+        double[] position = new double[0];
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.NUMBER) {
+                position = Arrays.copyOf(position, position.length + 1);
+                position[position.length - 1] = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return position;
+    }
+
+    private double[] readRing(JsonReader reader) throws IOException {
+        double[] packed = new double[64];
+        int size = 0;
+
+        boolean first = true;
+        while (first || reader.hasNext()) {
+            if (!first) {
+                reader.beginArray();
+            }
+            first = false;
+
+            if (size + 2 > packed.length) {
+                packed = Arrays.copyOf(packed, packed.length * 2);
+            }
+            packed[size++] = reader.nextDouble();
+            packed[size++] = reader.nextDouble();
+
+            // Ignore altitude or any further ordinates
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+        }
+        reader.endArray();
+
+        return Arrays.copyOf(packed, size);
+    }
+
+    private synchronized void resetShapes() {
+        shapes = new AtomicReferenceArray<>(registry.size());
+        lodShapes = new AtomicReferenceArray<>(LOD_TOLERANCES.length * registry.size());
+        spatialIndex = null;
+    }
+
+    /**
+     * Finish a load: from here on the loaded data is only read, so it can be
+     * shared by any number of threads
+     */
+    private void setRegistry(Collection<String> countryNames) {
+        // JTS computes envelopes lazily; do it now rather than racing on first use
+        countryGeometries.values().forEach(Geometry::getEnvelopeInternal);
+        countryGeometries = Collections.unmodifiableMap(countryGeometries);
+        countryAliases = Collections.unmodifiableMap(countryAliases);
+
+        registry = new CountryRegistry(countryNames, countryAliases);
+        envelopes = new AtomicReferenceArray<>(registry.size());
+        resetShapes();
     }
 
     /**
@@ -63,9 +536,7 @@ public class GeoJSONParser {
      */
     private String getCountryName(JsonObject properties) {
         // Try common property names
-        String[] nameFields = {"name", "NAME", "ADMIN", "admin", "NAME_LONG", "name_long"};
-
-        for (String field : nameFields) {
+        for (String field : NAME_FIELDS) {
             if (properties.has(field)) {
                 return properties.get(field).getAsString();
             }
@@ -74,6 +545,20 @@ public class GeoJSONParser {
         return null;
     }
 
+    /**
+     * Every name property present, in NAME_FIELDS order (missing ones are null)
+     */
+    private String[] getAllNames(JsonObject properties) {
+        String[] names = new String[NAME_FIELDS.length];
+        for (int i = 0; i < NAME_FIELDS.length; i++) {
+            JsonElement value = properties.get(NAME_FIELDS[i]);
+            if (value != null && value.isJsonPrimitive()) {
+                names[i] = value.getAsString();
+            }
+        }
+        return names;
+    }
+
     /**
      * Parse GeoJSON geometry into JTS Geometry
      */
@@ -103,14 +588,13 @@ public class GeoJSONParser {
     private Polygon parsePolygon(JsonArray coordinates) {
         // First array is exterior ring, rest are holes
         JsonArray exteriorRing = coordinates.get(0).getAsJsonArray();
-        Coordinate[] coords = parseCoordinateArray(exteriorRing);
-        LinearRing shell = geometryFactory.createLinearRing(coords);
+        LinearRing shell = parseRing(exteriorRing);
 
         // Parse holes if present
         LinearRing[] holes = new LinearRing[coordinates.size() - 1];
         for (int i = 1; i < coordinates.size(); i++) {
             JsonArray hole = coordinates.get(i).getAsJsonArray();
-            holes[i - 1] = geometryFactory.createLinearRing(parseCoordinateArray(hole));
+            holes[i - 1] = parseRing(hole);
         }
 
         return geometryFactory.createPolygon(shell, holes);
@@ -130,6 +614,19 @@ public class GeoJSONParser {
         return geometryFactory.createMultiPolygon(polygons);
     }
 
+    private LinearRing parseRing(JsonArray coordArray) {
+        if (coordinateStore == null) {
+            return geometryFactory.createLinearRing(parseCoordinateArray(coordArray));
+        }
+        double[] lonLat = new double[2 * coordArray.size()];
+        for (int i = 0; i < coordArray.size(); i++) {
+            JsonArray point = coordArray.get(i).getAsJsonArray();
+            lonLat[2 * i] = point.get(0).getAsDouble();
+            lonLat[2 * i + 1] = point.get(1).getAsDouble();
+        }
+        return createPackedRing(lonLat);
+    }
+
     /**
      * Parse coordinate array [[lon, lat], [lon, lat], ...]
      */
@@ -150,19 +647,26 @@ public class GeoJSONParser {
      * Get geometry for a country
      */
     public Geometry getCountryGeometry(String countryName) {
-        // Try exact match first
-        if (countryGeometries.containsKey(countryName)) {
-            return countryGeometries.get(countryName);
-        }
+        // Any spelling or alias resolves in one lookup
+        int countryId = registry.getId(countryName);
+        return countryId < 0 ? null : getCountryGeometry(countryId);
+    }
 
-        // Try case-insensitive match
-        for (Map.Entry<String, Geometry> entry : countryGeometries.entrySet()) {
-            if (entry.getKey().equalsIgnoreCase(countryName)) {
-                return entry.getValue();
-            }
+    /**
+     * Get geometry for a country by registry id
+     */
+    public Geometry getCountryGeometry(int countryId) {
+        if (featureIndex != null) {
+            return getIndexedGeometry(countryId);
         }
+        return getLoadedGeometry(registry.getName(countryId));
+    }
 
-        return null;
+    private Geometry getLoadedGeometry(String countryName) {
+        if (snapshot != null) {
+            return snapshot.getGeometry(countryName);
+        }
+        return countryGeometries.get(countryName);
     }
 
     /**
@@ -170,67 +674,269 @@ public class GeoJSONParser {
      * This is the closest border distance
      */
     public double calculateDistance(String country1, String country2) {
-        Geometry geom1 = getCountryGeometry(country1);
-        Geometry geom2 = getCountryGeometry(country2);
+        int id1 = registry.getId(country1);
+        int id2 = registry.getId(country2);
 
-        if (geom1 == null || geom2 == null) {
+        if (id1 < 0 || id2 < 0) {
             System.out.println("Warning: Could not find geometry for " +
-                    (geom1 == null ? country1 : country2));
+                    (id1 < 0 ? country1 : country2));
             return -1;
         }
 
-        // Use JTS to calculate minimum distance
-        double distance = DistanceOp.distance(geom1, geom2);
+        return calculateDistance(id1, id2);
+    }
+
+    /**
+     * Calculate distance between two countries by registry id (in kilometers)
+     */
+    public double calculateDistance(int country1, int country2) {
+        long start = EXACT_DISTANCE.start();
+        double distance = distanceEngine.distance(getDistanceShape(country1), getDistanceShape(country2));
+        EXACT_DISTANCE.stop(start);
+        return distance;
+    }
 
-        // Convert from degrees to kilometers
-        // Approximate: 1 degree ≈ 111 km at equator
-        return distance * 111.0;
+    /**
+     * The distance engine's precomputed form of a country, built on first use
+     */
+    public DistanceEngine.Shape getDistanceShape(int countryId) {
+        DistanceEngine.Shape shape = shapes.get(countryId);
+        if (shape == null) {
+            shapes.compareAndSet(countryId, null, distanceEngine.prepare(getCountryGeometry(countryId)));
+            shape = shapes.get(countryId);
+        }
+        return shape;
     }
 
     /**
-     * Get all country names
+     * Enable or disable the coarse-to-fine path in refineDistance
      */
-    public Set<String> getAllCountryNames() {
-        return new HashSet<>(countryGeometries.keySet());
+    public void setLevelOfDetail(boolean levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+    }
+
+    public boolean isLevelOfDetail() {
+        return levelOfDetail;
     }
 
     /**
-     * Pre-calculate all distances and save to CSV
-     * (This can take a while for 200+ countries!)
+     * Keep vertices loaded from GeoJSON off the heap, as 32-bit fixed-point
+     * lon/lat (1e-7 degrees) in a QuantizedCoordinateStore. Takes effect on the
+     * next load; loadWithSnapshot always keeps full precision. Distances cached
+     * for quantized data are kept apart from full-precision ones.
      */
-    public void generateDistanceMatrix(String outputCsvPath) throws IOException {
-        System.out.println("Generating distance matrix...");
-        System.out.println("This may take several minutes for 200+ countries");
+    public void setQuantizedCoordinates(boolean quantizedCoordinates) {
+        this.quantizedCoordinates = quantizedCoordinates;
+    }
+
+    public boolean isQuantizedCoordinates() {
+        return quantizedCoordinates;
+    }
 
-        BufferedWriter writer = new BufferedWriter(new FileWriter(outputCsvPath));
-        writer.write("Country1,Country2,Distance\n");
+    /**
+     * Store holding the loaded vertices, or null when they are on the heap
+     */
+    public QuantizedCoordinateStore getCoordinateStore() {
+        return coordinateStore;
+    }
 
-        List<String> countries = new ArrayList<>(countryGeometries.keySet());
-        int total = countries.size();
-        int count = 0;
+    private QuantizedCoordinateStore newCoordinateStore() {
+        return quantizedCoordinates ? new QuantizedCoordinateStore() : null;
+    }
 
-        for (int i = 0; i < countries.size(); i++) {
-            String country1 = countries.get(i);
+    public int getLodLevels() {
+        return levelOfDetail ? LOD_TOLERANCES.length : 0;
+    }
 
-            for (int j = i + 1; j < countries.size(); j++) {
-                String country2 = countries.get(j);
+    /**
+     * Distance (km) known to lie within [low, high]
+     */
+    public record DistanceInterval(double low, double high) {
+        public boolean isExact() {
+            return low == high;
+        }
+    }
 
-                double distance = calculateDistance(country1, country2);
+    /**
+     * Decides whether an interval is already precise enough for the caller
+     */
+    public interface IntervalDecision {
+        boolean isDecided(double low, double high);
+    }
 
-                // Write both directions
-                writer.write(String.format("%s,%s,%.0f\n", country1, country2, distance));
-                writer.write(String.format("%s,%s,%.0f\n", country2, country1, distance));
+    /**
+     * Bounds on calculateDistance from the simplified shapes at one level (0 = coarsest).
+     * Each simplified border is within its measured error of the original, so the
+     * true distance is off by at most the two errors.
+     */
+    public DistanceInterval distanceBounds(int country1, int country2, int level) {
+        LodShape shape1 = getLodShape(country1, level);
+        LodShape shape2 = getLodShape(country2, level);
+        double distance = distanceEngine.distance(shape1.shape(), shape2.shape());
+        double error = shape1.error() + shape2.error();
+        return new DistanceInterval(Math.max(0, distance - error), distance + error);
+    }
 
-                count++;
-                if (count % 100 == 0) {
-                    System.out.printf("Progress: %d/%d pairs calculated\n",
-                            count, (total * (total - 1)) / 2);
-                }
+    /**
+     * Answer from the coarsest level that the decision accepts, falling back to the
+     * exact distance when every level is ambiguous
+     */
+    public DistanceInterval refineDistance(int country1, int country2, IntervalDecision decision) {
+        DistanceInterval bounds = coarseDistance(country1, country2, decision);
+        if (bounds != null) {
+            return bounds;
+        }
+
+        double exact = calculateDistance(country1, country2);
+        return new DistanceInterval(exact, exact);
+    }
+
+    /**
+     * Like refineDistance, but returns null instead of computing the exact distance,
+     * for callers that take exact distances from a cache
+     */
+    public DistanceInterval coarseDistance(int country1, int country2, IntervalDecision decision) {
+        for (int level = 0; level < getLodLevels(); level++) {
+            DistanceInterval bounds = distanceBounds(country1, country2, level);
+            if (bounds.isExact() || decision.isDecided(bounds.low(), bounds.high())) {
+                return bounds;
             }
         }
+        return null;
+    }
+
+    /**
+     * A simplified shape together with its maximum distance error (km): the
+     * engine's Hausdorff distance between the simplified and original borders.
+     * The simplifier keeps borders within the tolerance in lon/lat only; drawn
+     * as great-circle arcs, long simplified segments at high latitude bulge far
+     * past it, so the error is measured rather than derived from the tolerance.
+     */
+    private record LodShape(DistanceEngine.Shape shape, double error) {
+    }
+
+    private LodShape getLodShape(int countryId, int level) {
+        int index = level * registry.size() + countryId;
+        LodShape lodShape = lodShapes.get(index);
+        if (lodShape == null) {
+            Geometry original = getCountryGeometry(countryId);
+            Geometry simplified = TopologyPreservingSimplifier.simplify(original, LOD_TOLERANCES[level]);
+
+            if (simplified.getNumPoints() >= original.getNumPoints()) {
+                // Nothing to gain at this level
+                lodShape = new LodShape(getDistanceShape(countryId), 0);
+            } else {
+                DistanceEngine.Shape shape = distanceEngine.prepare(simplified);
+                // Sampling a quarter tolerance apart adds an eighth of it to the bound
+                double stepKm = distanceEngine.pointDistance(
+                        new Coordinate(0, 0), new Coordinate(0, LOD_TOLERANCES[level])) / 4;
+                lodShape = new LodShape(shape, distanceEngine.borderHausdorffDistance(
+                        shape, getDistanceShape(countryId), stepKm));
+            }
+            lodShapes.compareAndSet(index, null, lodShape);
+            lodShape = lodShapes.get(index);
+        }
+        return lodShape;
+    }
+
+    /**
+     * Cheap lower bound on calculateDistance (km): gap between the bounding boxes
+     */
+    public double distanceLowerBound(int country1, int country2) {
+        return envelopeLowerBound(getEnvelope(country1), getEnvelope(country2));
+    }
+
+    /**
+     * Lower bound (km) on the distance between anything inside two bounding boxes
+     */
+    public double envelopeLowerBound(Envelope envelope1, Envelope envelope2) {
+        return distanceEngine.envelopeLowerBound(envelope1, envelope2);
+    }
+
+    /**
+     * Cheap upper bound on calculateDistance (km): distance between one vertex of each
+     */
+    public double distanceUpperBound(int country1, int country2) {
+        Coordinate c1 = getCountryGeometry(country1).getCoordinate();
+        Coordinate c2 = getCountryGeometry(country2).getCoordinate();
+        return distanceEngine.pointDistance(c1, c2);
+    }
+
+    /**
+     * Spatial index over the country envelopes, built on first use
+     */
+    public synchronized CountryIndex getSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new CountryIndex(this);
+        }
+        return spatialIndex;
+    }
 
-        writer.close();
-        System.out.println("Distance matrix saved to: " + outputCsvPath);
-        System.out.println("Total pairs: " + count);
+    public Envelope getEnvelope(int countryId) {
+        Envelope envelope = envelopes.get(countryId);
+        if (envelope == null) {
+            envelopes.compareAndSet(countryId, null, getCountryGeometry(countryId).getEnvelopeInternal());
+            envelope = envelopes.get(countryId);
+        }
+        return envelope;
+    }
+
+    /**
+     * Other names found for each country in its feature properties
+     */
+    public Map<String, List<String>> getCountryAliases() {
+        return countryAliases;
+    }
+
+    /**
+     * CRC32C of the GeoJSON loaded by loadWithSnapshot, or 0 for other loaders
+     */
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * Identifies the source GeoJSON, the country ids, the distance engine and
+     * whether the vertices were quantized, which together determine every
+     * distance computed from the loaded data
+     */
+    public long getDatasetKey() {
+        long key = sourceChecksum;
+        key = 31 * key + registry.namesHash();
+        key = 31 * key + distanceEngine.getClass().getName().hashCode();
+        key = 31 * key + (coordinateStore != null ? 1 : 0);
+        return key;
+    }
+
+    /**
+     * Dense int ids for the loaded countries (available after loading)
+     */
+    public CountryRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Get all country names
+     */
+    public Set<String> getAllCountryNames() {
+        if (featureIndex != null) {
+            Set<String> names = new HashSet<>();
+            for (int id = 0; id < registry.size(); id++) {
+                names.add(registry.getName(id));
+            }
+            return names;
+        }
+        if (snapshot != null) {
+            return snapshot.getNames();
+        }
+        return new HashSet<>(countryGeometries.keySet());
+    }
+
+    /**
+     * Pre-calculate all distances and save to CSV
+     * (computed in parallel, see DistanceMatrixGenerator)
+     */
+    public void generateDistanceMatrix(String outputCsvPath) throws IOException {
+        new DistanceMatrixGenerator(this).generate(new DistanceMatrix(registry.size()), outputCsvPath);
     }
-}
\ No newline at end of file
+}
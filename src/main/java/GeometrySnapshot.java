@@ -0,0 +1,443 @@
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary snapshot of the country geometries.
+ * Header and offset tables are read on open; JTS geometries are only
+ * built from the memory-mapped coordinate block on first access.
+ *
+ * Layout (big-endian):
+ *   magic "GLBS", int version, long source size, long source mtime (ms), long source CRC32C
+ *   int countries  { name, short aliasCount, aliasCount x name, byte multi, int firstPolygon, int polygonCount }
+ *                  (each name is a short length followed by UTF-8 bytes)
+ *   int polygons   { int firstRing, int ringCount }
+ *   int rings      { int firstPoint, int pointCount }
+ *   int points     { double lon, double lat }
+ */
+public class GeometrySnapshot {
+
+    private static final int MAGIC = 0x474C4253; // "GLBS"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 32;
+    private static final int MTIME_OFFSET = 16;
+
+    private final String[] names;
+    private final Map<String, List<String>> aliases;
+    private final Map<String, Integer> nameIndex;
+    private final boolean[] multi;
+    private final int[] countryPolygons;   // firstPolygon, polygonCount pairs
+    private final int[] polygonRings;      // firstRing, ringCount pairs
+    private final int[] ringPoints;        // firstPoint, pointCount pairs
+    private final DoubleBuffer points;
+    private final AtomicReferenceArray<Geometry> geometries;
+    private final GeometryFactory geometryFactory;
+    private long sourceChecksum;
+
+    private GeometrySnapshot(String[] names, Map<String, List<String>> aliases, boolean[] multi,
+                             int[] countryPolygons, int[] polygonRings, int[] ringPoints,
+                             DoubleBuffer points, GeometryFactory geometryFactory) {
+        this.names = names;
+        this.aliases = aliases;
+        this.multi = multi;
+        this.countryPolygons = countryPolygons;
+        this.polygonRings = polygonRings;
+        this.ringPoints = ringPoints;
+        this.points = points;
+        this.geometries = new AtomicReferenceArray<>(names.length);
+        this.geometryFactory = geometryFactory;
+
+        this.nameIndex = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            nameIndex.put(names[i], i);
+        }
+    }
+
+    /**
+     * Open a snapshot, or return null if it is missing, from another version,
+     * was written for a different source GeoJSON, or is truncated or corrupt.
+     * The source is only read for its checksum when its size matches but its
+     * modification time does not; if the content is unchanged, the new time
+     * is recorded so later opens skip the checksum again. The header and
+     * tables are read and checked with plain reads; only the coordinate block
+     * of a valid snapshot is mapped, so a stale file is never left mapped when
+     * it is about to be replaced.
+     */
+    public static GeometrySnapshot open(Path snapshotPath, Path sourcePath,
+                                        GeometryFactory geometryFactory) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining()) {
+                return null;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            long sourceChecksum = header.getLong();
+            if (sourceSize != Files.size(sourcePath)) {
+                return null;
+            }
+            long modified = lastModified(sourcePath);
+            boolean touched = sourceModified != modified;
+            if (touched && sourceChecksum != checksum(sourcePath)) {
+                return null;
+            }
+
+            CountingInputStream counting = new CountingInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            DataInputStream in = new DataInputStream(counting);
+            String[] names;
+            Map<String, List<String>> aliases = new HashMap<>();
+            boolean[] multi;
+            int[] countryPolygons;
+            int[] polygonRings;
+            int[] ringPoints;
+            int pointCount;
+            try {
+                int countryCount = in.readInt();
+                if (countryCount < 0 || countryCount > fileSize) {
+                    return null;
+                }
+                names = new String[countryCount];
+                multi = new boolean[countryCount];
+                countryPolygons = new int[countryCount * 2];
+                for (int i = 0; i < countryCount; i++) {
+                    names[i] = readName(in);
+                    List<String> countryAliases = new ArrayList<>();
+                    int aliasCount = in.readUnsignedShort();
+                    for (int a = 0; a < aliasCount; a++) {
+                        countryAliases.add(readName(in));
+                    }
+                    aliases.put(names[i], countryAliases);
+                    multi[i] = in.readByte() != 0;
+                    countryPolygons[2 * i] = in.readInt();
+                    countryPolygons[2 * i + 1] = in.readInt();
+                }
+
+                polygonRings = readIntPairs(in, fileSize);
+                ringPoints = readIntPairs(in, fileSize);
+                pointCount = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+
+            // The coordinates are the rest of the file; every table entry must
+            // point inside the next table, so a corrupt file is rebuilt rather
+            // than failing later while building a geometry
+            long pointsStart = header.capacity() + counting.count;
+            if (polygonRings == null || ringPoints == null || pointCount < 0
+                    || fileSize - pointsStart < 16L * pointCount
+                    || !validRanges(countryPolygons, polygonRings.length / 2, 0)
+                    || !validRanges(polygonRings, ringPoints.length / 2, 1)
+                    || !validRanges(ringPoints, pointCount, 0)) {
+                return null;
+            }
+            for (int r = 1; r < ringPoints.length; r += 2) {
+                // What JTS accepts as a LinearRing
+                if (ringPoints[r] > 0 && ringPoints[r] < 4) {
+                    return null;
+                }
+            }
+            if (touched) {
+                recordSourceModified(snapshotPath, modified);
+            }
+
+            DoubleBuffer points = channel.map(FileChannel.MapMode.READ_ONLY, pointsStart, 16L * pointCount)
+                    .asDoubleBuffer();
+
+            GeometrySnapshot snapshot = new GeometrySnapshot(names, aliases, multi, countryPolygons,
+                    polygonRings, ringPoints, points, geometryFactory);
+            snapshot.sourceChecksum = sourceChecksum;
+            return snapshot;
+        }
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        byte[] nameBytes = new byte[in.readUnsignedShort()];
+        in.readFully(nameBytes);
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(nameBytes.length);
+        out.write(nameBytes);
+    }
+
+    /**
+     * Whether every (first, count) pair has at least minCount entries and lies within [0, total)
+     */
+    private static boolean validRanges(int[] pairs, int total, int minCount) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            long first = pairs[i];
+            long count = pairs[i + 1];
+            if (first < 0 || count < minCount || first + count > total) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long lastModified(Path sourcePath) throws IOException {
+        return Files.getLastModifiedTime(sourcePath).toMillis();
+    }
+
+    /**
+     * Store the source's new modification time after its checksum matched.
+     * Best effort: if the snapshot cannot be written, the next open checks the source again.
+     */
+    private static void recordSourceModified(Path snapshotPath, long modified) {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.WRITE)) {
+            ByteBuffer time = ByteBuffer.allocate(8).putLong(modified).flip();
+            while (time.hasRemaining()) {
+                channel.write(time, MTIME_OFFSET + time.position());
+            }
+        } catch (IOException e) {
+            System.out.println("Could not update snapshot header: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A count followed by that many int pairs, or null if the count cannot fit in the file
+     */
+    private static int[] readIntPairs(DataInputStream in, long fileSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > fileSize / 8) {
+            return null;
+        }
+        int[] pairs = new int[count * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = in.readInt();
+        }
+        return pairs;
+    }
+
+    /**
+     * Counts the bytes read through it, to find where the coordinate block starts
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Write a snapshot of the given (Polygon or MultiPolygon) geometries and
+     * name aliases; returns the source's checksum
+     */
+    public static long write(Path snapshotPath, Path sourcePath, Map<String, Geometry> countryGeometries,
+                             Map<String, List<String>> aliases) throws IOException {
+        List<String> names = new ArrayList<>(countryGeometries.keySet());
+
+        // Flatten into the three offset tables first so the file is written in one pass
+        int[] countryPolygons = new int[names.size() * 2];
+        List<Polygon> polygons = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            Geometry geom = countryGeometries.get(names.get(i));
+            countryPolygons[2 * i] = polygons.size();
+            countryPolygons[2 * i + 1] = geom.getNumGeometries();
+            for (int p = 0; p < geom.getNumGeometries(); p++) {
+                polygons.add((Polygon) geom.getGeometryN(p));
+            }
+        }
+
+        int[] polygonRings = new int[polygons.size() * 2];
+        List<LineString> rings = new ArrayList<>();
+        for (int p = 0; p < polygons.size(); p++) {
+            Polygon polygon = polygons.get(p);
+            polygonRings[2 * p] = rings.size();
+            polygonRings[2 * p + 1] = polygon.getNumInteriorRing() + 1;
+            rings.add(polygon.getExteriorRing());
+            for (int h = 0; h < polygon.getNumInteriorRing(); h++) {
+                rings.add(polygon.getInteriorRingN(h));
+            }
+        }
+
+        int[] ringPoints = new int[rings.size() * 2];
+        int pointCount = 0;
+        for (int r = 0; r < rings.size(); r++) {
+            ringPoints[2 * r] = pointCount;
+            ringPoints[2 * r + 1] = rings.get(r).getNumPoints();
+            pointCount += rings.get(r).getNumPoints();
+        }
+
+        long sourceChecksum = checksum(sourcePath);
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(sourcePath));
+            out.writeLong(lastModified(sourcePath));
+            out.writeLong(sourceChecksum);
+
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                writeName(out, names.get(i));
+                List<String> countryAliases = aliases.getOrDefault(names.get(i), List.of());
+                out.writeShort(countryAliases.size());
+                for (String alias : countryAliases) {
+                    writeName(out, alias);
+                }
+                out.writeByte(countryGeometries.get(names.get(i)) instanceof MultiPolygon ? 1 : 0);
+                out.writeInt(countryPolygons[2 * i]);
+                out.writeInt(countryPolygons[2 * i + 1]);
+            }
+
+            writeIntPairs(out, polygonRings);
+            writeIntPairs(out, ringPoints);
+
+            out.writeInt(pointCount);
+            for (LineString ring : rings) {
+                CoordinateSequence seq = ring.getCoordinateSequence();
+                for (int k = 0; k < seq.size(); k++) {
+                    out.writeDouble(seq.getX(k));
+                    out.writeDouble(seq.getY(k));
+                }
+            }
+        }
+        Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+        return sourceChecksum;
+    }
+
+    private static void writeIntPairs(DataOutputStream out, int[] pairs) throws IOException {
+        out.writeInt(pairs.length / 2);
+        for (int value : pairs) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * CRC32C of the source file, used to detect a stale snapshot
+     */
+    static long checksum(Path sourcePath) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(sourcePath, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 20);
+            while (channel.read(chunk) > 0) {
+                chunk.flip();
+                crc.update(chunk);
+                chunk.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    public Set<String> getNames() {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    public Map<String, List<String>> getAliases() {
+        return aliases;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * CRC32C of the GeoJSON this snapshot was built from
+     */
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * Geometry for a country, built from the mapped coordinates on first access.
+     * Safe to call from several threads: all of them get the same instance.
+     */
+    public Geometry getGeometry(String countryName) {
+        Integer index = nameIndex.get(countryName);
+        if (index == null) {
+            return null;
+        }
+        Geometry geometry = geometries.get(index);
+        if (geometry == null) {
+            geometry = buildGeometry(index);
+            // Computed before publishing so readers never fill JTS's lazy envelope concurrently
+            geometry.getEnvelopeInternal();
+            geometries.compareAndSet(index, null, geometry);
+            geometry = geometries.get(index);
+        }
+        return geometry;
+    }
+
+    private Geometry buildGeometry(int country) {
+        int firstPolygon = countryPolygons[2 * country];
+        Polygon[] polygons = new Polygon[countryPolygons[2 * country + 1]];
+
+        for (int p = 0; p < polygons.length; p++) {
+            int firstRing = polygonRings[2 * (firstPolygon + p)];
+            int ringCount = polygonRings[2 * (firstPolygon + p) + 1];
+
+            LinearRing shell = buildRing(firstRing);
+            LinearRing[] holes = new LinearRing[ringCount - 1];
+            for (int h = 1; h < ringCount; h++) {
+                holes[h - 1] = buildRing(firstRing + h);
+            }
+            polygons[p] = geometryFactory.createPolygon(shell, holes);
+        }
+
+        if (!multi[country] && polygons.length == 1) {
+            return polygons[0];
+        }
+        return geometryFactory.createMultiPolygon(polygons);
+    }
+
+    private LinearRing buildRing(int ring) {
+        double[] lonLat = new double[ringPoints[2 * ring + 1] * 2];
+        points.get(ringPoints[2 * ring] * 2, lonLat);
+        return geometryFactory.createLinearRing(new PackedCoordinateSequence.Double(lonLat, 2, 0));
+    }
+}
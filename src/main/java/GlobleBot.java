@@ -1,5 +1,6 @@
 import org.openqa.selenium.By;
 import org.openqa.selenium.Keys;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.chrome.ChromeDriver;
@@ -8,31 +9,66 @@ import org.openqa.selenium.support.ui.WebDriverWait;
 import java.time.Duration;
 import java.util.List;
 
-public class GlobleBot {
+public class GlobleBot implements GameOracle {
+    private static final String GAME_URL = "https://globle-game.com/game";
+
+    private static final Metrics.Timer PAGE_LOAD = Metrics.timer("browser.load");
+    private static final Metrics.Timer INPUT = Metrics.timer("browser.input");
+    private static final Metrics.Timer PAGE_UPDATE = Metrics.timer("browser.update");
+    private static final Metrics.Timer READ = Metrics.timer("browser.read");
+
     private WebDriver driver;
     private WebDriverWait wait;
+    private WebDriverWait guessWait;
+    private String url;
+    private final GuessTableReader guessTable = new GuessTableReader();
+    // Table as of the read that showed the last guess
+    private GuessTableReader.Snapshot lastSnapshot;
+
+    // Whether the page reacted to the last guess; false means it was not accepted
+    private boolean lastGuessUpdated;
+
+    // Latency of the most recent step of each kind, in milliseconds
+    private long loadMillis;
+    private long inputMillis;
+    private long updateMillis;
+    private long readMillis;
 
     public GlobleBot() {
         // Set the path to your chromedriver
         //System.setProperty("webdriver.chrome.driver", "C:\\Users\\zhang\\Downloads\\chromedriver_win32\\chromedriver.exe");
 
-        driver = new ChromeDriver();
+        this(new ChromeDriver(), GAME_URL);
+    }
+
+    /**
+     * Drive any page with the game's markup, e.g. a local copy for testing
+     */
+    public GlobleBot(WebDriver driver, String url) {
+        this.driver = driver;
+        this.url = url;
         wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        // Guesses usually render within a few hundred ms; poll often
+        guessWait = new WebDriverWait(driver, Duration.ofSeconds(5), Duration.ofMillis(50));
     }
 
     public void start() {
-        driver.get("https://globle-game.com/game");
-        // Wait for page to load
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        long start = System.nanoTime();
+        driver.get(url);
+        // Ready once the guess input exists
+        wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("input[type='text']")));
+        loadMillis = elapsedMillis(start, PAGE_LOAD);
     }
 
+    @Override
     public void makeGuess(String countryName) {
+        lastGuessUpdated = false;
         try {
-            // Find the input box (you'll need to inspect the actual selector)
+            long start = System.nanoTime();
+
+            // Remember the page state so the guess's effect can be detected
+            GuessTableReader.Snapshot previous = guessTable.read(driver);
+
             WebElement inputBox = wait.until(ExpectedConditions.
                     presenceOfElementLocated(By.cssSelector("input[type='text']")));
 
@@ -42,57 +78,96 @@ public class GlobleBot {
             // Type the country name
             inputBox.sendKeys(countryName);
             inputBox.sendKeys(Keys.RETURN);
+            inputMillis = elapsedMillis(start, INPUT);
 
-            // Wait for the guess to be processed
-            Thread.sleep(1500);
+            // Done when a guess is added to the list; the read that shows it is
+            // kept, so the result needs no further round trip
+            start = System.nanoTime();
+            try {
+                lastSnapshot = guessWait.until(d -> {
+                    GuessTableReader.Snapshot current = guessTable.read(d);
+                    return current.guesses().size() > previous.guesses().size() ? current : null;
+                });
+                lastGuessUpdated = true;
+            } catch (TimeoutException e) {
+                System.out.println("No response to guess: " + countryName);
+            }
+            updateMillis = elapsedMillis(start, PAGE_UPDATE);
 
         } catch (Exception e) {
             System.out.println("Error making guess: " + e.getMessage());
         }
     }
 
+    @Override
     public GuessResult getLastGuessResult() {
+        if (!lastGuessUpdated) {
+            return null;
+        }
+        long start = System.nanoTime();
         try {
-            Thread.sleep(1000);
+            // The newest row is the guess just played; it has the closest-border
+            // distance as its own only if it lowered it, otherwise as a lower bound
+            List<GuessResult> added = guessTable.update(lastSnapshot);
+            if (added.isEmpty()) {
+                System.out.println("No new guess in the table");
+                return null;
+            }
+            return added.get(added.size() - 1);
+        } finally {
+            readMillis = elapsedMillis(start, READ);
+        }
+    }
 
-            // Find the most recent guess element (adjust selectors based on inspection)
-            WebElement countriesList = driver.findElement(
-                    By.cssSelector("ul.grid.grid-cols-3")
-            );
+    /**
+     * Every guess read from the page so far, oldest first
+     */
+    public List<GuessResult> getGuessTable() {
+        return guessTable.getGuesses();
+    }
 
-            // Get all list items (guesses)
-            List<WebElement> guesses = countriesList.findElements(By.tagName("li"));
+    private static long elapsedMillis(long startNanos, Metrics.Timer timer) {
+        long nanos = System.nanoTime() - startNanos;
+        timer.record(nanos);
+        return nanos / 1_000_000;
+    }
 
-            if (guesses.isEmpty()) {
-                System.out.println("No guesses found yet");
-                return null;
-            }
+    public long getLoadMillis() {
+        return loadMillis;
+    }
 
-            // Get the FIRST item (most recent guess)
-            WebElement lastGuess = guesses.get(0);
+    /**
+     * Time spent finding the input and typing the last guess
+     */
+    public long getInputMillis() {
+        return inputMillis;
+    }
 
-            // Extract country name from the span
-            String countryName = lastGuess.findElement(
-                    By.cssSelector("span.text-md")
-            ).getText();
+    /**
+     * Time until the page showed the last guess (the timeout if it never did)
+     */
+    public long getUpdateMillis() {
+        return updateMillis;
+    }
 
-            // Extract distance from the span with data-testid="closest-border"
-            String distance = "";
-            try {
-                WebElement distanceElement = driver.findElement(
-                        By.cssSelector("span[data-testid='closest-border']")
-                );
-                distance = distanceElement.getText();
-            } catch (Exception e2) {
-                    System.out.println("Could not find distance element");
-            }
+    /**
+     * Time spent turning the last page read into a result (the read itself
+     * happens while waiting for the update; see getExtractMillis)
+     */
+    public long getReadMillis() {
+        return readMillis;
+    }
 
-            return new GuessResult(countryName, distance);
+    /**
+     * Round-trip time of the last guess-table read
+     */
+    public double getExtractMillis() {
+        return guessTable.getLastReadNanos() / 1e6;
+    }
 
-        } catch (Exception e) {
-            System.out.println("Error extracting result: " + e.getMessage());
-            return null;
-        }
+    public String getLatencySummary() {
+        return String.format("input %d ms, page update %d ms, read %d ms, extract %.1f ms",
+                inputMillis, updateMillis, readMillis, getExtractMillis());
     }
 
     public void close() {
@@ -1,12 +1,24 @@
 public class GuessResult {
     String country;
     private String distance;
+    // The page only showed that this guess is no closer than distance
+    private boolean lowerBound;
 
     public GuessResult(String country, String distance) {
         this.country = country;
         this.distance = distance;
     }
 
+    /**
+     * A guess known only to be at least distance away, e.g. one that did not
+     * lower the closest border shown by the page
+     */
+    public static GuessResult atLeast(String country, String distance) {
+        GuessResult result = new GuessResult(country, distance);
+        result.lowerBound = true;
+        return result;
+    }
+
     public int getDistanceAsInt() {
         if (distance == null || distance.isEmpty()) {
             return -1; // Return -1 if distance not found (might mean you won!)
@@ -14,9 +26,23 @@ public class GuessResult {
         return Integer.parseInt(distance.replace(",", "").replace(":", "").trim());
     }
 
+    /**
+     * Whether the distance is only a lower bound on this guess's own distance
+     */
+    public boolean isLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Whether the distance is this guess's own, known distance
+     */
+    public boolean isExact() {
+        return !lowerBound && getDistanceAsInt() >= 0;
+    }
+
     @Override
     public String toString() {
-        return String.format("Country: %s, Distance: %s",
-                country, distance);
+        return String.format("Country: %s, Distance: %s%s",
+                country, lowerBound ? "at least " : "", distance);
     }
 }
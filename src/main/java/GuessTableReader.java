@@ -0,0 +1,205 @@
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the whole guess list and the closest-border distance with a single
+ * executeScript call (one round trip to the driver), and keeps the guesses
+ * seen so far so each read only reports what is new.
+ *
+ * The page lists guesses most recent first and only shows one distance, the
+ * closest border so far. That is a guess's own distance only if the guess
+ * lowered it: a single new row that brings the value down takes it as its
+ * distance. A new row that leaves it unchanged, or several rows read at once,
+ * are only known to be at least that far (GuessResult.atLeast), since the
+ * value may belong to an earlier guess.
+ */
+public class GuessTableReader {
+
+    private static final Metrics.Timer EXTRACT = Metrics.timer("browser.extract");
+
+    static final By GUESS_LIST_ITEMS = By.cssSelector("ul.grid.grid-cols-3 li");
+    static final By GUESS_NAME = By.cssSelector("span.text-md");
+    static final By CLOSEST_BORDER = By.cssSelector("span[data-testid='closest-border']");
+
+    // Same selectors as above; innerText matches what WebElement.getText() returns
+    private static final String SCRIPT = """
+            const text = element => (element.innerText ?? element.textContent ?? "").trim();
+            const guesses = [];
+            for (const item of document.querySelectorAll("ul.grid.grid-cols-3 li")) {
+                const name = item.querySelector("span.text-md");
+                guesses.push(text(name ?? item));
+            }
+            const border = document.querySelector("span[data-testid='closest-border']");
+            return {guesses: guesses, closestBorder: border ? text(border) : ""};
+            """;
+
+    /**
+     * The page's guess list (most recent first) and closest-border text
+     */
+    public record Snapshot(List<String> guesses, String closestBorder) {
+    }
+
+    // Guesses seen so far, oldest first
+    private final List<GuessResult> seen = new ArrayList<>();
+    private final List<String> seenNames = new ArrayList<>();
+    // Closest-border value as of the last update, or -1 before any distance was shown
+    private int closest = -1;
+    private long lastReadNanos;
+
+    /**
+     * Read the table in one round trip
+     */
+    public Snapshot read(WebDriver driver) {
+        long start = System.nanoTime();
+        Object result = ((JavascriptExecutor) driver).executeScript(SCRIPT);
+        lastReadNanos = System.nanoTime() - start;
+        EXTRACT.record(lastReadNanos);
+
+        if (!(result instanceof Map<?, ?> table)) {
+            return new Snapshot(List.of(), "");
+        }
+        List<String> guesses = new ArrayList<>();
+        if (table.get("guesses") instanceof List<?> names) {
+            for (Object name : names) {
+                guesses.add(String.valueOf(name));
+            }
+        }
+        Object border = table.get("closestBorder");
+        return new Snapshot(guesses, border == null ? "" : border.toString());
+    }
+
+    /**
+     * Compare a snapshot with the guesses seen before; returns the new ones,
+     * oldest first. A single new row that lowered the closest border gets it
+     * as its distance; otherwise every new row gets it as a lower bound.
+     *
+     * If the page no longer continues the seen guesses (e.g. it was reloaded
+     * or reordered), the seen list is re-read from the page with unknown
+     * distances and nothing is returned, since no row can be matched to the
+     * distance shown.
+     */
+    public List<GuessResult> update(Snapshot snapshot) {
+        List<String> pageOrder = new ArrayList<>(snapshot.guesses());
+        Collections.reverse(pageOrder);
+
+        boolean continues = pageOrder.size() >= seenNames.size()
+                && pageOrder.subList(0, seenNames.size()).equals(seenNames);
+        if (!continues) {
+            System.out.println("Guess table no longer matches the guesses read so far; "
+                    + "re-reading it without distances");
+            seen.clear();
+            seenNames.clear();
+            for (String name : pageOrder) {
+                seen.add(new GuessResult(name, null));
+            }
+            seenNames.addAll(pageOrder);
+            closest = new GuessResult(null, snapshot.closestBorder()).getDistanceAsInt();
+            return List.of();
+        }
+
+        List<GuessResult> added = new ArrayList<>();
+        List<String> newNames = pageOrder.subList(seenNames.size(), pageOrder.size());
+        String border = snapshot.closestBorder();
+        int shown = new GuessResult(null, border).getDistanceAsInt();
+        boolean lowered = shown >= 0 && (closest < 0 || shown < closest);
+        for (String name : newNames) {
+            if (shown < 0) {
+                added.add(new GuessResult(name, null));
+            } else if (lowered && newNames.size() == 1) {
+                added.add(new GuessResult(name, border));
+            } else {
+                added.add(GuessResult.atLeast(name, border));
+            }
+        }
+        if (added.size() > 1) {
+            System.out.println(added.size() + " guesses appeared in one read; "
+                    + "none has a known distance");
+        }
+        if (shown >= 0) {
+            closest = shown;
+        }
+        seen.addAll(added);
+        seenNames.addAll(newNames);
+        return added;
+    }
+
+    /**
+     * Every guess seen so far, oldest first
+     */
+    public List<GuessResult> getGuesses() {
+        return Collections.unmodifiableList(seen);
+    }
+
+    /**
+     * Round-trip time of the last read
+     */
+    public long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    /**
+     * The same table read element by element, the way GlobleBot used to:
+     * one findElements for the list, then a findElement and getText per guess
+     */
+    static Snapshot readPerElement(WebDriver driver) {
+        List<String> guesses = new ArrayList<>();
+        for (WebElement item : driver.findElements(GUESS_LIST_ITEMS)) {
+            List<WebElement> name = item.findElements(GUESS_NAME);
+            guesses.add((name.isEmpty() ? item : name.get(0)).getText().trim());
+        }
+        List<WebElement> border = driver.findElements(CLOSEST_BORDER);
+        return new Snapshot(guesses, border.isEmpty() ? "" : border.get(0).getText().trim());
+    }
+
+    /**
+     * Usage: GuessTableReader <page-url> [reads]
+     * Checks the single-script read against the per-element read on a page
+     * with a filled-in guess table (e.g. globle-fixture-table.html in the test
+     * resources) and prints the latency of each.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: GuessTableReader <page-url> [reads]");
+            return;
+        }
+        String pageUrl = args[0];
+        int reads = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        WebDriver driver = new ChromeDriver();
+        try {
+            driver.get(pageUrl);
+            GuessTableReader reader = new GuessTableReader();
+
+            Snapshot script = reader.read(driver);
+            Snapshot perElement = readPerElement(driver);
+            System.out.println("Script:      " + script);
+            System.out.println("Per element: " + perElement);
+            System.out.println(script.equals(perElement) ? "Reads match" : "MISMATCH between reads");
+            System.out.println("New guesses, oldest first: " + reader.update(script));
+            System.out.println("New after a second read: " + reader.update(reader.read(driver)));
+
+            long scriptNanos = 0;
+            long perElementNanos = 0;
+            for (int i = 0; i < reads; i++) {
+                reader.read(driver);
+                scriptNanos += reader.getLastReadNanos();
+
+                long start = System.nanoTime();
+                readPerElement(driver);
+                perElementNanos += System.nanoTime() - start;
+            }
+            System.out.printf("Per extraction over %d reads: script %.2f ms, per element %.2f ms (%d guesses)%n",
+                    reads, scriptNanos / 1e6 / reads, perElementNanos / 1e6 / reads, script.guesses().size());
+        } finally {
+            driver.quit();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one turn of BotAlgorithm.solve, spanning playing the guess
+ * and reading the result; the time spent choosing it is a field. Record with
+ * e.g. java -XX:StartFlightRecording=filename=run.jfr
+ *
+ * The first event object initializes JFR, which takes a few hundred ms, so
+ * callers only start one once FlightRecorder.isInitialized().
+ */
+@Name("globle.GuessTurn")
+@Label("Guess Turn")
+@Category("Globle")
+@Description("One guess: selection, play and result")
+@StackTrace(false)
+class GuessTurnEvent extends Event {
+
+    @Label("Turn")
+    int turn;
+
+    @Label("Guess")
+    String guess;
+
+    @Label("Strategy")
+    @Description("How the guess was chosen: opening, book, information, consistent or triangulation")
+    String strategy;
+
+    @Label("Reported Distance")
+    @Description("Distance the game reported in km, or -1 if no result was read")
+    int distance;
+
+    @Label("Candidates Left")
+    int candidates;
+
+    @Label("Selection Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long selectionNanos;
+
+    static GuessTurnEvent started() {
+        GuessTurnEvent event = new GuessTurnEvent();
+        event.begin();
+        return event;
+    }
+
+    void finish(int turn, String guess, String strategy, int distance, int candidates, long selectionNanos) {
+        end();
+        if (shouldCommit()) {
+            this.turn = turn;
+            this.guess = guess;
+            this.strategy = strategy;
+            this.distance = distance;
+            this.candidates = candidates;
+            this.selectionNanos = selectionNanos;
+            commit();
+        }
+    }
+}
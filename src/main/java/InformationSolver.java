@@ -0,0 +1,106 @@
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the guess that is expected to leave the fewest candidates.
+ * For every possible guess, the still-consistent candidates are partitioned by
+ * the (bucketed) distance that guess would report; the guess minimizing the
+ * expected size of the partition we end up in is chosen. Works on a full
+ * int distance table and BitSet candidate sets, and scores guesses in parallel.
+ */
+public class InformationSolver {
+
+    private final int countries;
+    private final int[] distances;   // row-major: distances[guess * countries + candidate]
+    private final int bucketKm;
+    private final int buckets;
+    private volatile long lastTurnNanos;
+
+    /**
+     * @param bucketKm width of the distance buckets used to partition candidates
+     */
+    public InformationSolver(LiveDistanceCalculator distanceCalc, int bucketKm) {
+        this.countries = distanceCalc.getCountryCount();
+        this.bucketKm = bucketKm;
+
+        distanceCalc.precomputeAllDistances();
+        this.distances = new int[countries * countries];
+        for (int g = 0; g < countries; g++) {
+            for (int c = 0; c < countries; c++) {
+                distances[g * countries + c] = distanceCalc.getDistance(g, c);
+            }
+        }
+
+        int maxDistance = 0;
+        for (int distance : distances) {
+            maxDistance = Math.max(maxDistance, distance);
+        }
+        this.buckets = maxDistance / bucketKm + 1;
+    }
+
+    public InformationSolver(LiveDistanceCalculator distanceCalc) {
+        this(distanceCalc, 100);
+    }
+
+    /**
+     * Best next guess id for the candidate set, or -1 if there is no guess left to make
+     */
+    public int nextGuess(BitSet candidates, BitSet guessed) {
+        long start = System.nanoTime();
+        int[] ids = candidates.stream().toArray();
+        int best;
+
+        if (ids.length <= 2) {
+            // Nothing left to split: just try a candidate not guessed yet
+            best = IntStream.of(ids).filter(c -> !guessed.get(c)).findFirst().orElse(-1);
+        } else {
+            best = IntStream.range(0, countries).parallel()
+                    .filter(g -> !guessed.get(g))
+                    .mapToObj(g -> new Score(g, expectedRemaining(g, ids), candidates.get(g)))
+                    .min(Score::compareTo)
+                    .map(score -> score.country)
+                    .orElse(-1);
+        }
+
+        lastTurnNanos = System.nanoTime() - start;
+        return best;
+    }
+
+    /**
+     * Sum of squared partition sizes, proportional to the expected remaining set size.
+     * Ties go to guesses that are candidates themselves, since they can win outright.
+     */
+    private long expectedRemaining(int guess, int[] candidates) {
+        int[] partition = new int[buckets];
+        int row = guess * countries;
+        for (int c : candidates) {
+            partition[distances[row + c] / bucketKm]++;
+        }
+
+        long sum = 0;
+        for (int size : partition) {
+            sum += (long) size * size;
+        }
+        return sum;
+    }
+
+    private record Score(int country, long remaining, boolean candidate) implements Comparable<Score> {
+        @Override
+        public int compareTo(Score other) {
+            if (remaining != other.remaining) {
+                return Long.compare(remaining, other.remaining);
+            }
+            if (candidate != other.candidate) {
+                return candidate ? -1 : 1;
+            }
+            return Integer.compare(country, other.country);
+        }
+    }
+
+    /**
+     * Time spent in the most recent nextGuess call
+     */
+    public double getLastTurnMillis() {
+        return lastTurnNanos / 1e6;
+    }
+}
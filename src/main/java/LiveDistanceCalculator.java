@@ -1,56 +1,159 @@
 import org.locationtech.jts.geom.*;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Live distance calculator using GeoJSON multipolygon data.
  * Calculates distances on-the-fly instead of using pre-calculated matrix.
  */
-public class LiveDistanceCalculator {
+public class LiveDistanceCalculator implements CountryIndex.DistanceSource {
+
+    private static final Metrics.Timer TRIANGULATE = Metrics.timer("triangulate");
+    private static final Metrics.Counter CACHE_LOOKUPS = Metrics.counter("distance.cache.lookups");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("distance.cache.misses");
+
+    /**
+     * Default tolerance band of the candidate filter, in km either side of a reported distance
+     */
+    public static final int DEFAULT_TOLERANCE_KM = 50;
 
     private GeoJSONParser geoParser;
-    private Map<String, Double> distanceCache;
+    private CountryRegistry registry;
+    private DistanceMatrix distanceCache;
+    private CandidateFilter candidateFilter;
+    private final int toleranceKm;
+    private ScoringKernel scoringKernel = ScoringKernel.preferred();
+    private final LongAdder cacheLookups = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private double cacheLoadMillis;
 
     public LiveDistanceCalculator(String geoJsonFilePath) throws IOException {
+        this(geoJsonFilePath, DEFAULT_TOLERANCE_KM);
+    }
+
+    /**
+     * Load the GeoJSON file; toleranceKm is how far a country's distance may
+     * be from a reported one before the candidate filter eliminates it
+     */
+    public LiveDistanceCalculator(String geoJsonFilePath, int toleranceKm) throws IOException {
+        this.toleranceKm = checkTolerance(toleranceKm);
         this.geoParser = new GeoJSONParser();
-        this.distanceCache = new HashMap<>();
 
         System.out.println("Loading GeoJSON data...");
-        geoParser.loadFromFile(geoJsonFilePath);
+        geoParser.loadWithSnapshot(geoJsonFilePath, geoJsonFilePath + ".snapshot");
+
+        this.registry = geoParser.getRegistry();
+
+        // Distances computed in earlier runs on the same data are reused
+        long start = System.nanoTime();
+        Path cacheFile = Path.of(geoJsonFilePath + ".distances");
+        this.distanceCache = DistanceMatrix.open(cacheFile, registry.size(), geoParser.getDatasetKey());
+        cacheLoadMillis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("Distance cache: %d pairs from %s (%.1f ms)%n",
+                distanceCache.filledPairs(), cacheFile, cacheLoadMillis);
         System.out.println("Ready for distance calculations!");
     }
 
     /**
-     * Get distance between two countries (with caching)
+     * Use an already loaded parser (in-memory cache only)
      */
-    public int getDistance(String country1, String country2) {
-        // Normalize names
-        country1 = country1.trim();
-        country2 = country2.trim();
+    public LiveDistanceCalculator(GeoJSONParser geoParser) {
+        this(geoParser, DEFAULT_TOLERANCE_KM);
+    }
 
-        // Check cache (bidirectional)
-        String key1 = country1 + "|" + country2;
-        String key2 = country2 + "|" + country1;
+    /**
+     * Use an already loaded parser with the given candidate filter tolerance
+     */
+    public LiveDistanceCalculator(GeoJSONParser geoParser, int toleranceKm) {
+        this.toleranceKm = checkTolerance(toleranceKm);
+        this.geoParser = geoParser;
+        this.registry = geoParser.getRegistry();
+        this.distanceCache = new DistanceMatrix(registry.size());
+    }
 
-        if (distanceCache.containsKey(key1)) {
-            return distanceCache.get(key1).intValue();
-        }
-        if (distanceCache.containsKey(key2)) {
-            return distanceCache.get(key2).intValue();
+    private static int checkTolerance(int toleranceKm) {
+        if (toleranceKm < 0) {
+            throw new IllegalArgumentException("Tolerance must be 0 km or more, got " + toleranceKm);
         }
+        return toleranceKm;
+    }
 
-        // Calculate distance
-        double distance = geoParser.calculateDistance(country1, country2);
+    /**
+     * Get distance between two countries (with caching)
+     */
+    public int getDistance(String country1, String country2) {
+        int id1 = registry.getId(country1);
+        int id2 = registry.getId(country2);
 
-        if (distance < 0) {
+        if (id1 < 0 || id2 < 0) {
+            System.out.println("Warning: Could not find geometry for " +
+                    (id1 < 0 ? country1 : country2));
             return -1; // Country not found
         }
 
-        // Cache the result
-        distanceCache.put(key1, distance);
+        return getDistance(id1, id2);
+    }
+
+    /**
+     * Get distance between two countries by registry id (with caching).
+     * A cache hit is a single array read.
+     */
+    public int getDistance(int country1, int country2) {
+        return distance(country1, country2);
+    }
 
-        return (int) Math.round(distance);
+    @Override
+    public int distance(int country1, int country2) {
+        return distance(country1, country2, null);
+    }
+
+    /**
+     * Cached distance; when this call is the one that computes it, counts it in stats
+     */
+    private int distance(int country1, int country2, TriangulationStats stats) {
+        float distance = distanceCache.computeIfAbsent(country1, country2, (i, j) -> {
+            cacheMisses.increment();
+            CACHE_MISSES.increment();
+            if (stats != null) {
+                stats.exactComputed++;
+            }
+            return (float) geoParser.calculateDistance(i, j);
+        });
+        cacheLookups.increment();
+        CACHE_LOOKUPS.increment();
+
+        return Math.round(distance);
+    }
+
+    @Override
+    public int cachedDistance(int country1, int country2) {
+        float distance = distanceCache.get(country1, country2);
+        return Float.isNaN(distance) ? -1 : Math.round(distance);
+    }
+
+    /**
+     * Bounds on a distance that the decision accepts, from the envelope and
+     * single-vertex bounds or else the level-of-detail shapes; null if none
+     * does. Never computes an exact distance.
+     */
+    public GeoJSONParser.DistanceInterval coarseDistance(int country1, int country2,
+                                                         GeoJSONParser.IntervalDecision decision) {
+        double low = geoParser.distanceLowerBound(country1, country2);
+        double high = geoParser.distanceUpperBound(country1, country2);
+        if (decision.isDecided(low, high)) {
+            return new GeoJSONParser.DistanceInterval(low, high);
+        }
+        return geoParser.coarseDistance(country1, country2, decision);
+    }
+
+    /**
+     * Whether every pair's distance is already in the cache
+     */
+    public boolean isFullyComputed() {
+        return distanceCache.filledPairs() >= distanceCache.totalPairs();
     }
 
     /**
@@ -58,17 +161,14 @@ public class LiveDistanceCalculator {
      */
     public List<String> getCountriesInRange(String centerCountry, int minDistance, int maxDistance) {
         List<String> result = new ArrayList<>();
-        Set<String> allCountries = geoParser.getAllCountryNames();
-
-        for (String country : allCountries) {
-            if (country.equalsIgnoreCase(centerCountry)) {
-                continue;
-            }
+        int center = registry.getId(centerCountry);
+        if (center < 0) {
+            return result;
+        }
 
-            int distance = getDistance(centerCountry, country);
-            if (distance >= minDistance && distance <= maxDistance) {
-                result.add(country);
-            }
+        for (int country : geoParser.getSpatialIndex().withinRange(
+                center, minDistance, maxDistance, this)) {
+            result.add(registry.getName(country));
         }
 
         return result;
@@ -78,29 +178,15 @@ public class LiveDistanceCalculator {
      * Find N closest countries to a given country
      */
     public List<String> getClosestCountries(String centerCountry, int n, Set<String> exclude) {
-        Set<String> allCountries = geoParser.getAllCountryNames();
-        List<CountryDistance> distances = new ArrayList<>();
-
-        for (String country : allCountries) {
-            if (country.equalsIgnoreCase(centerCountry)) {
-                continue;
-            }
-            if (exclude != null && exclude.contains(country.toLowerCase())) {
-                continue;
-            }
-
-            int distance = getDistance(centerCountry, country);
-            if (distance >= 0) {
-                distances.add(new CountryDistance(country, distance));
-            }
+        int center = registry.getId(centerCountry);
+        if (center < 0) {
+            return List.of();
         }
 
-        // Sort by distance
-        distances.sort(Comparator.comparingInt(cd -> cd.distance));
-
-        return distances.stream()
-                .limit(n)
-                .map(cd -> cd.country)
+        return geoParser.getSpatialIndex()
+                .nearest(center, n, registry.toIdSet(exclude), this)
+                .stream()
+                .map(registry::getName)
                 .toList();
     }
 
@@ -108,51 +194,258 @@ public class LiveDistanceCalculator {
      * Triangulate: find countries matching multiple distance constraints
      */
     public List<String> triangulate(Map<String, Integer> referencePoints, Set<String> exclude) {
-        Set<String> allCountries = geoParser.getAllCountryNames();
+        return triangulateWithStats(referencePoints, exclude).candidates();
+    }
+
+    /**
+     * Best candidates (as triangulate) with the pruning counters of this call
+     */
+    public record Triangulation(List<String> candidates, TriangulationStats stats) {
+    }
+
+    /**
+     * Triangulate and report how much exact geometry work this call needed;
+     * the counters only cover this call, also when other games share the cache
+     */
+    public Triangulation triangulateWithStats(Map<String, Integer> referencePoints, Set<String> exclude) {
+        return triangulateWithStats(referencePoints, registry.toIdSet(exclude));
+    }
+
+    /**
+     * Triangulate with the excluded countries given by registry id
+     */
+    public Triangulation triangulateWithStats(Map<String, Integer> referencePoints, BitSet excluded) {
+        long start = TRIANGULATE.start();
+        try {
+            TriangulationStats stats = new TriangulationStats();
+            return new Triangulation(rankCandidates(referencePoints, excluded, stats), stats);
+        } finally {
+            TRIANGULATE.stop(start);
+        }
+    }
+
+    private List<String> rankCandidates(Map<String, Integer> referencePoints, BitSet excluded,
+                                        TriangulationStats stats) {
         List<ScoredCountry> candidates = new ArrayList<>();
 
-        for (String country : allCountries) {
-            if (exclude != null && exclude.contains(country.toLowerCase())) {
-                continue;
+        // Resolve reference names once instead of per candidate
+        int[] refIds = new int[referencePoints.size()];
+        int[] refTargets = new int[referencePoints.size()];
+        int refCount = 0;
+        for (Map.Entry<String, Integer> ref : referencePoints.entrySet()) {
+            int refId = registry.getId(ref.getKey());
+            if (refId < 0) {
+                return List.of(); // Unknown reference: no candidate can be scored
             }
+            refIds[refCount] = refId;
+            refTargets[refCount] = ref.getValue();
+            refCount++;
+        }
+
+        // Cheap stage: bound each candidate's total error from cached distances
+        // or envelope bounds, without any exact geometry distance. Bounds are
+        // gathered into one column per reference so the error sums over all
+        // candidates run as a single data-parallel kernel.
+        int[] ids = new int[registry.size()];
+        int count = 0;
+        for (int country = excluded.nextClearBit(0); country < registry.size();
+             country = excluded.nextClearBit(country + 1)) {
+            ids[count++] = country;
+        }
+
+        int[][] low = new int[refCount][count];
+        int[][] high = new int[refCount][count];
+        for (int r = 0; r < refCount; r++) {
+            for (int c = 0; c < count; c++) {
+                float cached = distanceCache.get(refIds[r], ids[c]);
+                if (!Float.isNaN(cached)) {
+                    low[r][c] = high[r][c] = Math.round(cached);
+                } else {
+                    low[r][c] = (int) Math.floor(geoParser.distanceLowerBound(refIds[r], ids[c]));
+                    high[r][c] = (int) Math.ceil(geoParser.distanceUpperBound(refIds[r], ids[c]));
+                    stats.uncachedPairs++;
+                }
+            }
+        }
+        int[] minErrors = new int[count];
+        int[] maxErrors = new int[count];
+        scoringKernel.score(low, high, refTargets, count, minErrors, maxErrors);
+
+        List<BoundedCandidate> bounded = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            bounded.add(new BoundedCandidate(ids[c], minErrors[c], maxErrors[c]));
+        }
+        stats.candidates = bounded.size();
+
+        // No candidate whose best case is worse than the k-th best worst case can make the top k
+        int keep = 10;
+        double threshold = Double.POSITIVE_INFINITY;
+        if (bounded.size() > keep) {
+            int[] sortedMaxErrors = maxErrors.clone();
+            Arrays.sort(sortedMaxErrors);
+            threshold = sortedMaxErrors[keep - 1];
+        }
+
+        // Exact stage: refine survivors in order of their lower bound, stopping
+        // once the next lower bound cannot beat the current k-th best
+        bounded.sort(Comparator.comparingDouble(bc -> bc.minError));
+        PriorityQueue<ScoredCountry> best = new PriorityQueue<>(
+                Comparator.comparingDouble((ScoredCountry sc) -> sc.score).reversed());
+
+        candidates:
+        for (BoundedCandidate candidate : bounded) {
+            if (candidate.minError > threshold ||
+                    (best.size() == keep && candidate.minError > best.peek().score)) {
+                break;
+            }
+
+            // Coarse-to-fine: a candidate that cannot beat the k-th best even with
+            // level-of-detail bounds never needs its exact distances
+            if (best.size() == keep) {
+                for (int level = 0; level < geoParser.getLodLevels(); level++) {
+                    if (lodMinError(candidate.country, refIds, refTargets, refCount, level) > best.peek().score) {
+                        stats.lodPruned++;
+                        continue candidates;
+                    }
+                }
+            }
+            stats.refined++;
 
             // Calculate error for this candidate
             double totalError = 0;
             boolean valid = true;
 
-            for (Map.Entry<String, Integer> ref : referencePoints.entrySet()) {
-                int actualDistance = getDistance(ref.getKey(), country);
+            for (int r = 0; r < refCount; r++) {
+                int actualDistance = distance(refIds[r], candidate.country, stats);
 
                 if (actualDistance < 0) {
                     valid = false;
                     break;
                 }
 
-                int targetDistance = ref.getValue();
-                double error = Math.abs(actualDistance - targetDistance);
-
-                // Weight the error (closer reference points are more important)
-                if (targetDistance < 1000) {
-                    error *= 2.0; // Double weight for close references
-                }
-
-                totalError += error;
+                totalError += weightedError(actualDistance, refTargets[r]);
             }
 
             if (valid) {
-                candidates.add(new ScoredCountry(country, totalError));
+                best.add(new ScoredCountry(registry.getName(candidate.country), totalError));
+                if (best.size() > keep) {
+                    best.poll();
+                }
             }
         }
 
+        // Every pair computed here was uncached in the bounding stage too
+        stats.exactAvoided = stats.uncachedPairs - stats.exactComputed;
+
         // Sort by lowest error
+        candidates.addAll(best);
         candidates.sort(Comparator.comparingDouble(sc -> sc.score));
 
         return candidates.stream()
-                .limit(10)
+                .limit(keep)
                 .map(sc -> sc.country)
                 .toList();
     }
 
+    /**
+     * Lower bound on a candidate's total error using cached distances or the
+     * level-of-detail bounds at one level
+     */
+    private double lodMinError(int country, int[] refIds, int[] refTargets, int refCount, int level) {
+        double minError = 0;
+        for (int r = 0; r < refCount; r++) {
+            int low;
+            int high;
+            int cached = cachedDistance(refIds[r], country);
+            if (cached >= 0) {
+                low = high = cached;
+            } else {
+                GeoJSONParser.DistanceInterval bounds = geoParser.distanceBounds(refIds[r], country, level);
+                low = (int) Math.floor(bounds.low());
+                high = (int) Math.ceil(bounds.high());
+            }
+            minError += weightedError(Math.max(low, Math.min(high, refTargets[r])), refTargets[r]);
+        }
+        return minError;
+    }
+
+    private static double weightedError(int actualDistance, int targetDistance) {
+        // Closer reference points are more important (see ScoringKernel.weight)
+        return ScoringKernel.weight(targetDistance) * Math.abs(actualDistance - targetDistance);
+    }
+
+    /**
+     * Kernel for triangulate's bounding stage; defaults to the vector kernel
+     * when the JVM has jdk.incubator.vector
+     */
+    public void setScoringKernel(ScoringKernel scoringKernel) {
+        this.scoringKernel = scoringKernel;
+    }
+
+    public ScoringKernel getScoringKernel() {
+        return scoringKernel;
+    }
+
+    /**
+     * Dataset spelling of a country name (any case, accents or known alias);
+     * unknown names are returned trimmed
+     */
+    public String getCanonicalName(String countryName) {
+        String canonical = registry.getCanonicalName(countryName);
+        return canonical != null ? canonical : countryName.trim();
+    }
+
+    /**
+     * Registry id for any spelling of a country name, or -1
+     */
+    public int getCountryId(String countryName) {
+        return registry.getId(countryName);
+    }
+
+    public String getCountryName(int countryId) {
+        return registry.getName(countryId);
+    }
+
+    public int getCountryCount() {
+        return registry.size();
+    }
+
+    public CountryRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Key of the loaded data and distance engine (see GeoJSONParser.getDatasetKey)
+     */
+    public long getDatasetKey() {
+        return geoParser.getDatasetKey();
+    }
+
+    /**
+     * Registry ids of the given names; unknown names are ignored
+     */
+    public BitSet getCountryIds(Collection<String> countryNames) {
+        return registry.toIdSet(countryNames);
+    }
+
+    /**
+     * Shared exact-constraint filter with this calculator's tolerance; its
+     * sorted rows are built on first use and reused by every game on this calculator
+     */
+    public synchronized CandidateFilter getCandidateFilter() {
+        if (candidateFilter == null) {
+            candidateFilter = new CandidateFilter(this, toleranceKm);
+        }
+        return candidateFilter;
+    }
+
+    /**
+     * Tolerance band of the candidate filter, in km either side of a reported distance
+     */
+    public int getToleranceKm() {
+        return toleranceKm;
+    }
+
     /**
      * Get all country names
      */
@@ -164,24 +457,78 @@ public class LiveDistanceCalculator {
      * Generate and save complete distance matrix (optional, for speed)
      */
     public void generateDistanceMatrix(String outputPath) throws IOException {
-        geoParser.generateDistanceMatrix(outputPath);
+        // Fills this calculator's cache as a side effect
+        new DistanceMatrixGenerator(geoParser).generate(distanceCache, outputPath);
+    }
+
+    /**
+     * Compute every pair up front (in parallel). Afterwards all lookups are
+     * cache hits, so the calculator is only read and can be shared between threads.
+     */
+    public void precomputeAllDistances() {
+        new DistanceMatrixGenerator(geoParser).computeAll(distanceCache);
+        geoParser.getSpatialIndex();
+    }
+
+    /**
+     * Number of exact distances computed by this calculator (cache misses)
+     */
+    public long getComputedPairs() {
+        return cacheMisses.sum();
     }
 
     /**
      * Get cache statistics
      */
     public void printCacheStats() {
-        System.out.println("Distance cache size: " + distanceCache.size() + " pairs");
+        System.out.println("Distance cache size: " + distanceCache.filledPairs() + "/" +
+                distanceCache.totalPairs() + " pairs");
+        long lookups = cacheLookups.sum();
+        long hits = lookups - cacheMisses.sum();
+        System.out.printf("Distance lookups: %d hits, %d misses (%.1f%% hit rate)%n",
+                hits, lookups - hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups);
+        if (distanceCache.isPersistent()) {
+            System.out.printf("Persistent cache loaded in %.1f ms%n", cacheLoadMillis);
+        }
     }
 
     // Helper classes
-    private static class CountryDistance {
-        String country;
-        int distance;
+    private static class BoundedCandidate {
+        int country;
+        double minError;
+        double maxError;
 
-        CountryDistance(String country, int distance) {
+        BoundedCandidate(int country, double minError, double maxError) {
             this.country = country;
-            this.distance = distance;
+            this.minError = minError;
+            this.maxError = maxError;
+        }
+    }
+
+    /**
+     * How much exact geometry work a triangulate call needed
+     */
+    public static class TriangulationStats {
+        int candidates;
+        int refined;
+        int lodPruned;
+        int uncachedPairs;
+        int exactComputed;
+        int exactAvoided;
+
+        public int getExactComputed() {
+            return exactComputed;
+        }
+
+        public int getExactAvoided() {
+            return exactAvoided;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d candidates, %d refined exactly, %d pruned by level of detail, " +
+                            "%d exact distances computed, %d avoided",
+                    candidates, refined, lodPruned, exactComputed, exactAvoided);
         }
     }
 
@@ -0,0 +1,286 @@
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide stage timers and counters. Off unless the JVM runs with
+ * -Dgloble.metrics=true (or enable() is called); while off, start() and
+ * increment() return after reading one flag and record nothing.
+ *
+ * When enabled from the command line, a report with percentiles is printed
+ * at exit, and written as JSON to -Dgloble.metrics.json=<file> if given.
+ *
+ *   private static final Metrics.Timer TRIANGULATE = Metrics.timer("triangulate");
+ *   long start = TRIANGULATE.start();
+ *   ...
+ *   TRIANGULATE.stop(start);
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled;
+
+    private static final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+
+    static {
+        if (Boolean.getBoolean("globle.metrics")) {
+            enable(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(Metrics::reportAtExit));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void enable(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * The timer with this name, created on first use
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * The counter with this name, created on first use
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Clear every recorded value (the timers and counters stay registered)
+     */
+    public static void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    /**
+     * Durations of one stage, in a log-linear histogram: 16 buckets per power
+     * of two, so percentiles are within about 6% of the recorded value
+     */
+    public static final class Timer {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Start time to pass to stop(), or 0 when metrics are off
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        public void stop(long start) {
+            if (start != 0) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Record a duration measured elsewhere
+         */
+        public void record(long nanos) {
+            if (!enabled) {
+                return;
+            }
+            nanos = Math.max(nanos, 0);
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            int mantissa = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+            return (exponent + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        /**
+         * Midpoint of the values a bucket holds
+         */
+        private static double bucketValue(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS - 1;
+            long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << exponent;
+            return low + ((1L << exponent) - 1) / 2.0;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * Approximate percentile (0-100) of the recorded durations, in milliseconds
+         */
+        public double getPercentileMillis(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(bucketValue(i), maxNanos.get()) / 1e6;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        private void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        private void reset() {
+            value.reset();
+        }
+    }
+
+    /**
+     * Table of every timer and counter that recorded anything
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %9s %10s %10s %10s %10s %10s%n",
+                "stage", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Timer timer : timers.values()) {
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            out.append(String.format("%-24s %9d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    timer.name, timer.getCount(), timer.getMeanMillis(),
+                    timer.getPercentileMillis(50), timer.getPercentileMillis(90),
+                    timer.getPercentileMillis(99), timer.getMaxMillis()));
+        }
+        for (Counter counter : counters.values()) {
+            if (counter.get() != 0) {
+                out.append(String.format("%-24s %9d%n", counter.name, counter.get()));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * The same numbers as report(), as JSON
+     */
+    public static void writeJson(Path path) throws IOException {
+        Map<String, Object> root = new LinkedHashMap<>();
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Timer timer : timers.values()) {
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", timer.getCount());
+            stats.put("meanMs", timer.getMeanMillis());
+            stats.put("p50Ms", timer.getPercentileMillis(50));
+            stats.put("p90Ms", timer.getPercentileMillis(90));
+            stats.put("p99Ms", timer.getPercentileMillis(99));
+            stats.put("maxMs", timer.getMaxMillis());
+            stages.put(timer.name, stats);
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Counter counter : counters.values()) {
+            counts.put(counter.name, counter.get());
+        }
+        root.put("timers", stages);
+        root.put("counters", counts);
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(root, writer);
+        }
+    }
+
+    private static void reportAtExit() {
+        System.out.println("\n=== Metrics ===");
+        System.out.print(report());
+        String json = System.getProperty("globle.metrics.json");
+        if (json != null) {
+            try {
+                writeJson(Path.of(json));
+                System.out.println("Metrics written to " + json);
+            } catch (IOException e) {
+                System.out.println("Could not write metrics: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Precompiled decision tree of the solver. The secret is always one of the
+ * dataset's countries and the solver is deterministic, so the guess after a
+ * given sequence of (guess, distance) observations never changes. The builder
+ * plays every target from the chosen openings and records the tree; at runtime
+ * BotAlgorithm follows it with one hash probe per turn and only computes
+ * guesses itself once it leaves the recorded branches.
+ *
+ * Node 0 is the root, whose children are keyed by opening guess id. Every
+ * other node holds the guess to make next and its children keyed by the
+ * exact distance that guess reports, so a game that reaches a node has the
+ * same history as the games recorded there. A child is only added where
+ * every recorded game with that distance made the same next guess; anywhere
+ * else the solver leaves the book and computes the guess itself, so the
+ * book never changes which guess is played. Children live in
+ * open-addressing tables.
+ */
+public class OpeningBook {
+
+    private static final int MAGIC = 0x474C4F42; // "GLOB"
+    private static final int VERSION = 4;
+    private static final short EMPTY = -1;
+
+    private final short[] guess;
+    private final int[] tableStart;
+    private final byte[] tableBits;
+    private final short[] keys;
+    private final int[] children;
+    private final boolean information;
+
+    private OpeningBook(short[] guess, int[] tableStart, byte[] tableBits,
+                        short[] keys, int[] children, boolean information) {
+        this.guess = guess;
+        this.tableStart = tableStart;
+        this.tableBits = tableBits;
+        this.keys = keys;
+        this.children = children;
+        this.information = information;
+    }
+
+    /**
+     * Node for an opening guess, or -1 if the book does not start with it
+     */
+    public int openingNode(int guessId) {
+        return child(0, guessId);
+    }
+
+    /**
+     * Node reached when the guess at node reports this distance, or -1
+     */
+    public int next(int node, int distance) {
+        return distance < 0 ? -1 : child(node, distance);
+    }
+
+    /**
+     * Guess id to make at a node
+     */
+    public int getGuess(int node) {
+        return guess[node];
+    }
+
+    public int getNodeCount() {
+        return guess.length;
+    }
+
+    /**
+     * Whether the book was recorded with the information solver mode
+     */
+    public boolean isInformation() {
+        return information;
+    }
+
+    private int child(int node, int key) {
+        if (node < 0 || key < 0 || key > Short.MAX_VALUE || tableBits[node] < 0) {
+            return -1;
+        }
+        int mask = (1 << tableBits[node]) - 1;
+        int start = tableStart[node];
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            short stored = keys[start + slot];
+            if (stored == key) {
+                return children[start + slot];
+            }
+            if (stored == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        return ((key * 0x9E3779B1) >>> 16) & mask;
+    }
+
+    /**
+     * Play every country as the target from each opening and record the
+     * solver's decisions
+     */
+    public static OpeningBook build(LiveDistanceCalculator distanceCalc, List<String> openings,
+                                    InformationSolver informationSolver) {
+        System.out.println("Precomputing distance table...");
+        distanceCalc.precomputeAllDistances();
+
+        List<String> targets = distanceCalc.getAllCountries().stream().sorted().toList();
+        List<String[]> games = new ArrayList<>();
+        for (String opening : openings) {
+            for (String target : targets) {
+                games.add(new String[]{opening, target});
+            }
+        }
+
+        List<List<GuessResult>> histories = games.parallelStream().map(game -> {
+            SimulatedGame simulated = new SimulatedGame(distanceCalc, game[1]);
+            BotAlgorithm solver = new BotAlgorithm(simulated, distanceCalc);
+            solver.setVerbose(false);
+            solver.setInformationSolver(informationSolver);
+            solver.solve(game[0]);
+            return solver.getGuessHistory();
+        }).toList();
+
+        Map<Integer, List<PlayedGame>> byOpening = new TreeMap<>();
+        for (List<GuessResult> history : histories) {
+            if (history.isEmpty()) {
+                continue;
+            }
+            int[] guesses = new int[history.size()];
+            int[] distances = new int[history.size()];
+            for (int i = 0; i < history.size(); i++) {
+                guesses[i] = distanceCalc.getCountryId(history.get(i).country);
+                distances[i] = history.get(i).getDistanceAsInt();
+            }
+            byOpening.computeIfAbsent(guesses[0], key -> new ArrayList<>()).add(new PlayedGame(guesses, distances));
+        }
+
+        BuildNode root = new BuildNode(-1);
+        for (Map.Entry<Integer, List<PlayedGame>> opening : byOpening.entrySet()) {
+            BuildNode node = new BuildNode(opening.getKey());
+            root.children.put(opening.getKey(), node);
+            grow(node, opening.getValue(), 1);
+        }
+        return compile(root, informationSolver != null);
+    }
+
+    private record PlayedGame(int[] guesses, int[] distances) {
+    }
+
+    private static class BuildNode {
+        final int guess;
+        final Map<Integer, BuildNode> children = new HashMap<>();
+
+        BuildNode(int guess) {
+            this.guess = guess;
+        }
+    }
+
+    /**
+     * Add the children of a node that every given game reached at this turn:
+     * one per reported distance at which all those games made the same next
+     * guess. Where they disagree the guess depends on more than the book
+     * records, so that distance gets no child.
+     */
+    private static void grow(BuildNode node, List<PlayedGame> games, int turn) {
+        Map<Integer, List<PlayedGame>> byDistance = new TreeMap<>();
+        for (PlayedGame game : games) {
+            int distance = game.distances[turn - 1];
+            if (game.guesses.length > turn && distance >= 0 && distance <= Short.MAX_VALUE) {
+                byDistance.computeIfAbsent(distance, key -> new ArrayList<>()).add(game);
+            }
+        }
+
+        for (Map.Entry<Integer, List<PlayedGame>> branch : byDistance.entrySet()) {
+            List<PlayedGame> reached = branch.getValue();
+            int guess = reached.get(0).guesses[turn];
+            if (reached.stream().allMatch(game -> game.guesses[turn] == guess)) {
+                BuildNode child = new BuildNode(guess);
+                node.children.put(branch.getKey(), child);
+                grow(child, reached, turn + 1);
+            }
+        }
+    }
+
+    /**
+     * Flatten the tree breadth-first into hash tables sized for a load factor of at most 3/4
+     */
+    private static OpeningBook compile(BuildNode root, boolean information) {
+        List<BuildNode> order = new ArrayList<>();
+        Map<BuildNode, Integer> index = new IdentityHashMap<>();
+        order.add(root);
+        index.put(root, 0);
+        for (int i = 0; i < order.size(); i++) {
+            for (BuildNode child : order.get(i).children.values()) {
+                index.put(child, order.size());
+                order.add(child);
+            }
+        }
+
+        int nodes = order.size();
+        short[] guess = new short[nodes];
+        int[] tableStart = new int[nodes];
+        byte[] tableBits = new byte[nodes];
+        int slots = 0;
+        for (int i = 0; i < nodes; i++) {
+            BuildNode node = order.get(i);
+            guess[i] = (short) node.guess;
+            tableStart[i] = slots;
+            if (node.children.isEmpty()) {
+                tableBits[i] = -1;
+                continue;
+            }
+            int bits = 0;
+            while ((1 << bits) * 3 < node.children.size() * 4) {
+                bits++;
+            }
+            tableBits[i] = (byte) bits;
+            slots += 1 << bits;
+        }
+
+        short[] keys = new short[slots];
+        int[] children = new int[slots];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < nodes; i++) {
+            if (tableBits[i] < 0) {
+                continue;
+            }
+            int mask = (1 << tableBits[i]) - 1;
+            for (Map.Entry<Integer, BuildNode> entry : order.get(i).children.entrySet()) {
+                int slot = slot(entry.getKey(), mask);
+                while (keys[tableStart[i] + slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[tableStart[i] + slot] = entry.getKey().shortValue();
+                children[tableStart[i] + slot] = index.get(entry.getValue());
+            }
+        }
+        return new OpeningBook(guess, tableStart, tableBits, keys, children, information);
+    }
+
+    /**
+     * Write the book for the calculator it was built with: its branches are
+     * the distances of that data and engine, filtered with its tolerance
+     */
+    public void write(Path path, LiveDistanceCalculator distanceCalc) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(distanceCalc.getDatasetKey());
+            out.writeInt(distanceCalc.getToleranceKm());
+            out.writeBoolean(information);
+            out.writeInt(guess.length);
+            out.writeInt(keys.length);
+            for (int i = 0; i < guess.length; i++) {
+                out.writeShort(guess[i]);
+                out.writeByte(tableBits[i]);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                out.writeShort(keys[i]);
+                out.writeInt(children[i]);
+            }
+        }
+    }
+
+    /**
+     * Load a book, or return null if it is missing, from another version, was
+     * built for different data, distance engine or candidate tolerance than
+     * the calculator's (see GeoJSONParser.getDatasetKey), or was recorded with
+     * the other solver mode (information or default) than the one it will be used with
+     */
+    public static OpeningBook load(Path path, LiveDistanceCalculator distanceCalc, boolean information)
+            throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != distanceCalc.getDatasetKey()
+                    || in.readInt() != distanceCalc.getToleranceKm()) {
+                return null;
+            }
+            if (in.readBoolean() != information) {
+                return null;
+            }
+            int nodes = in.readInt();
+            int slots = in.readInt();
+
+            short[] guess = new short[nodes];
+            int[] tableStart = new int[nodes];
+            byte[] tableBits = new byte[nodes];
+            int start = 0;
+            for (int i = 0; i < nodes; i++) {
+                guess[i] = in.readShort();
+                tableBits[i] = in.readByte();
+                // Table offsets follow from the sizes, so they are not stored
+                tableStart[i] = start;
+                if (tableBits[i] >= 0) {
+                    start += 1 << tableBits[i];
+                }
+            }
+
+            short[] keys = new short[slots];
+            int[] children = new int[slots];
+            for (int i = 0; i < slots; i++) {
+                keys[i] = in.readShort();
+                children[i] = in.readInt();
+            }
+            return new OpeningBook(guess, tableStart, tableBits, keys, children, information);
+        }
+    }
+
+    /**
+     * Usage: OpeningBook <path-to-geojson> <book-file> [opening-guess | --all-starts] [--info] [--tolerance <km>]
+     */
+    public static void main(String[] args) throws Exception {
+        SolverOptions options = SolverOptions.parse(args);
+        args = options.getArgs();
+        if (args.length < 2) {
+            System.out.println("Usage: OpeningBook <path-to-geojson> <book-file> [opening-guess | --all-starts] [--info]"
+                    + " [--tolerance <km>]");
+            return;
+        }
+
+        LiveDistanceCalculator distanceCalc = options.createCalculator(args[0]);
+        List<String> countries = distanceCalc.getAllCountries().stream().sorted().toList();
+
+        List<String> openings;
+        if (args.length > 2 && args[2].equals("--all-starts")) {
+            openings = countries;
+        } else if (args.length > 2) {
+            openings = List.of(distanceCalc.getCanonicalName(args[2]));
+        } else {
+            openings = List.of(countries.get(0));
+        }
+
+        long start = System.nanoTime();
+        OpeningBook book = build(distanceCalc, openings, options.createInformationSolver(distanceCalc));
+        Path bookPath = Path.of(args[1]);
+        book.write(bookPath, distanceCalc);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Built book for %d openings: %d nodes, %d bytes in %.2f s%n",
+                openings.size(), book.getNodeCount(), Files.size(bookPath), seconds);
+    }
+}
@@ -0,0 +1,110 @@
+import org.locationtech.jts.densify.Densifier;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+
+/**
+ * Original approach: planar distance on lon/lat degrees, times 111 km.
+ * Fast, but distorted away from the equator and across the antimeridian.
+ */
+public class PlanarDistanceEngine implements DistanceEngine {
+
+    private static final double KM_PER_DEGREE = 111.0;
+
+    /**
+     * A country with its facet index and prepared geometry, both built on first
+     * use and reused for every later pair involving the country
+     */
+    private static class PlanarShape implements Shape {
+        private final Geometry geometry;
+        private IndexedFacetDistance facetIndex;
+        private PreparedGeometry prepared;
+
+        PlanarShape(Geometry geometry) {
+            this.geometry = geometry;
+        }
+
+        @Override
+        public Geometry getGeometry() {
+            return geometry;
+        }
+
+        synchronized IndexedFacetDistance getFacetIndex() {
+            if (facetIndex == null) {
+                facetIndex = new IndexedFacetDistance(geometry);
+            }
+            return facetIndex;
+        }
+
+        synchronized PreparedGeometry getPrepared() {
+            if (prepared == null) {
+                prepared = PreparedGeometryFactory.prepare(geometry);
+            }
+            return prepared;
+        }
+    }
+
+    @Override
+    public Shape prepare(Geometry geometry) {
+        return new PlanarShape(geometry);
+    }
+
+    @Override
+    public double distance(Shape shape1, Shape shape2) {
+        PlanarShape s1 = (PlanarShape) shape1;
+        PlanarShape s2 = (PlanarShape) shape2;
+
+        // The cached index belongs to the country with more vertices; only the
+        // smaller one is indexed per call
+        if (s2.geometry.getNumPoints() > s1.geometry.getNumPoints()) {
+            PlanarShape swap = s1;
+            s1 = s2;
+            s2 = swap;
+        }
+
+        // The facet index only measures between borders, so overlaps and
+        // enclaves (0 km) are detected first
+        if (s1.geometry.getEnvelopeInternal().intersects(s2.geometry.getEnvelopeInternal())
+                && s1.getPrepared().intersects(s2.geometry)) {
+            return 0;
+        }
+        return s1.getFacetIndex().distance(s2.geometry) * KM_PER_DEGREE;
+    }
+
+    @Override
+    public double envelopeLowerBound(Envelope envelope1, Envelope envelope2) {
+        return envelope1.distance(envelope2) * KM_PER_DEGREE;
+    }
+
+    @Override
+    public double pointDistance(Coordinate c1, Coordinate c2) {
+        return c1.distance(c2) * KM_PER_DEGREE;
+    }
+
+    /**
+     * Largest distance from a sample of either border to the other border;
+     * any border point is within half a step of a sample
+     */
+    @Override
+    public double borderHausdorffDistance(Shape shape1, Shape shape2, double stepKm) {
+        double step = stepKm / KM_PER_DEGREE;
+        Geometry border1 = shape1.getGeometry().getBoundary();
+        Geometry border2 = shape2.getGeometry().getBoundary();
+        double distance = Math.max(farthestSample(border1, border2, step), farthestSample(border2, border1, step));
+        return (distance + step / 2) * KM_PER_DEGREE;
+    }
+
+    private static double farthestSample(Geometry from, Geometry to, double step) {
+        IndexedFacetDistance facets = new IndexedFacetDistance(to);
+        GeometryFactory factory = from.getFactory();
+        double farthest = 0;
+        for (Coordinate sample : Densifier.densify(from, step).getCoordinates()) {
+            farthest = Math.max(farthest, facets.distance(factory.createPoint(sample)));
+        }
+        return farthest;
+    }
+}
@@ -0,0 +1,142 @@
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequences;
+import org.locationtech.jts.geom.CoordinateXY;
+import org.locationtech.jts.geom.Envelope;
+
+import java.nio.IntBuffer;
+
+/**
+ * A 2D ring or line whose vertices live in a QuantizedCoordinateStore buffer.
+ * Nothing is cached: getCoordinate() builds a new Coordinate on each call and
+ * getX()/getY() decode straight from the buffer, so JTS code reading it
+ * allocates no per-vertex objects that outlive the call.
+ */
+public class QuantizedCoordinateSequence implements CoordinateSequence {
+
+    private final IntBuffer data;
+    private final int offset;   // index of the first vertex's longitude in data
+    private final int size;
+
+    QuantizedCoordinateSequence(IntBuffer data, int offset, int size) {
+        this.data = data;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    public int getDimension() {
+        return 2;
+    }
+
+    @Override
+    public Coordinate getCoordinate(int i) {
+        return new CoordinateXY(getX(i), getY(i));
+    }
+
+    @Override
+    public Coordinate getCoordinateCopy(int i) {
+        return getCoordinate(i);
+    }
+
+    @Override
+    public void getCoordinate(int i, Coordinate coord) {
+        coord.setX(getX(i));
+        coord.setY(getY(i));
+    }
+
+    @Override
+    public double getX(int i) {
+        // Division, not a multiply by 1e-7, gives the double nearest the decimal value
+        return data.get(offset + 2 * i) / QuantizedCoordinateStore.SCALE;
+    }
+
+    @Override
+    public double getY(int i) {
+        return data.get(offset + 2 * i + 1) / QuantizedCoordinateStore.SCALE;
+    }
+
+    @Override
+    public double getOrdinate(int i, int ordinateIndex) {
+        switch (ordinateIndex) {
+            case X:
+                return getX(i);
+            case Y:
+                return getY(i);
+            default:
+                return Double.NaN;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes through to the store (rounded to 1e-7 degrees); other ordinates
+     * than X and Y do not exist and are ignored
+     */
+    @Override
+    public void setOrdinate(int i, int ordinateIndex, double value) {
+        if (ordinateIndex == X || ordinateIndex == Y) {
+            data.put(offset + 2 * i + ordinateIndex, QuantizedCoordinateStore.quantize(value));
+        }
+    }
+
+    @Override
+    public Coordinate[] toCoordinateArray() {
+        Coordinate[] coordinates = new Coordinate[size];
+        for (int i = 0; i < size; i++) {
+            coordinates[i] = getCoordinate(i);
+        }
+        return coordinates;
+    }
+
+    @Override
+    public Envelope expandEnvelope(Envelope env) {
+        if (size == 0) {
+            return env;
+        }
+        // Bounds in fixed point first, so only the two corners are decoded
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int k = offset, end = offset + 2 * size; k < end; k += 2) {
+            int x = data.get(k);
+            int y = data.get(k + 1);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        env.expandToInclude(minX / QuantizedCoordinateStore.SCALE, minY / QuantizedCoordinateStore.SCALE);
+        env.expandToInclude(maxX / QuantizedCoordinateStore.SCALE, maxY / QuantizedCoordinateStore.SCALE);
+        return env;
+    }
+
+    // Still abstract in CoordinateSequence; callers should use copy()
+    @Override
+    @SuppressWarnings("deprecation")
+    public Object clone() {
+        return copy();
+    }
+
+    /**
+     * A copy in its own direct buffer, so writes to it leave this one alone
+     */
+    @Override
+    public QuantizedCoordinateSequence copy() {
+        IntBuffer copy = QuantizedCoordinateStore.newBuffer(2 * size);
+        for (int k = 0; k < 2 * size; k++) {
+            copy.put(k, data.get(offset + k));
+        }
+        return new QuantizedCoordinateSequence(copy, 0, size);
+    }
+
+    @Override
+    public String toString() {
+        return CoordinateSequences.toString(this);
+    }
+}
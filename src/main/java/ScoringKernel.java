@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * Triangulation error for many candidates at once. Distances are laid out
+ * column-wise: for reference guess r, low[r][c] and high[r][c] bound candidate
+ * c's distance to it. A candidate's error bounds sum over the references:
+ *
+ *   minError[c] = sum of w * |clamp(target, low[r][c], high[r][c]) - target|
+ *   maxError[c] = sum of w * max(|low[r][c] - target|, |high[r][c] - target|)
+ *
+ * where w is 2 for references closer than 1000 km and 1 otherwise. With
+ * integer distances the errors are exact in int arithmetic.
+ *
+ * This class is the scalar version. VectorScoringKernel does the same with the
+ * Vector API when the JVM runs with --add-modules jdk.incubator.vector.
+ */
+public class ScoringKernel {
+
+    private static final ScoringKernel PREFERRED = choose();
+
+    /**
+     * The vector kernel when the incubator module is present, else the scalar one
+     */
+    public static ScoringKernel preferred() {
+        return PREFERRED;
+    }
+
+    public static ScoringKernel scalar() {
+        return new ScoringKernel();
+    }
+
+    /**
+     * The vector kernel, or null if the incubator module is not available
+     */
+    public static ScoringKernel vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // Loaded reflectively so this class never links against the incubator module
+            return (ScoringKernel) Class.forName("VectorScoringKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static ScoringKernel choose() {
+        ScoringKernel vector = vector();
+        return vector != null ? vector : scalar();
+    }
+
+    /**
+     * Weight of a reference's error: close references are more telling
+     */
+    static int weight(int target) {
+        return target < 1000 ? 2 : 1;
+    }
+
+    /**
+     * Fill minError and maxError for the first count candidates from the
+     * distance bounds to each reference (low[r], high[r] are columns)
+     */
+    public void score(int[][] low, int[][] high, int[] targets, int count, int[] minError, int[] maxError) {
+        Arrays.fill(minError, 0, count, 0);
+        Arrays.fill(maxError, 0, count, 0);
+        // Reference by reference: each pass is a flat loop over primitive
+        // columns, which the JIT can auto-vectorize
+        for (int r = 0; r < targets.length; r++) {
+            int target = targets[r];
+            int w = weight(target);
+            int[] lows = low[r];
+            int[] highs = high[r];
+            for (int c = 0; c < count; c++) {
+                int nearest = Math.max(lows[c], Math.min(highs[c], target));
+                minError[c] += w * Math.abs(nearest - target);
+                maxError[c] += w * Math.max(Math.abs(lows[c] - target), Math.abs(highs[c] - target));
+            }
+        }
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+}
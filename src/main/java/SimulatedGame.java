@@ -0,0 +1,88 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Offline stand-in for globle-game.com: picks a secret country and answers
+ * guesses with closest-border distances from a LiveDistanceCalculator.
+ */
+public class SimulatedGame implements GameOracle {
+
+    private final LiveDistanceCalculator distanceCalc;
+    private final String secret;
+    private GuessResult lastResult;
+    private int guesses;
+
+    public SimulatedGame(LiveDistanceCalculator distanceCalc, String secret) {
+        this.distanceCalc = distanceCalc;
+        this.secret = distanceCalc.getCanonicalName(secret);
+    }
+
+    /**
+     * Game with a random secret country
+     */
+    public SimulatedGame(LiveDistanceCalculator distanceCalc, Random random) {
+        this(distanceCalc, randomCountry(distanceCalc, random));
+    }
+
+    private static String randomCountry(LiveDistanceCalculator distanceCalc, Random random) {
+        List<String> countries = distanceCalc.getAllCountries().stream().sorted().toList();
+        return countries.get(random.nextInt(countries.size()));
+    }
+
+    @Override
+    public void makeGuess(String countryName) {
+        guesses++;
+        String guess = distanceCalc.getCanonicalName(countryName);
+        int distance = distanceCalc.getDistance(guess, secret);
+
+        // Like the browser, an unknown country produces no result
+        lastResult = distance < 0 ? null : new GuessResult(guess, String.valueOf(distance));
+    }
+
+    @Override
+    public GuessResult getLastGuessResult() {
+        return lastResult;
+    }
+
+    @Override
+    public boolean isSolved(GuessResult result) {
+        return distanceCalc.getCanonicalName(result.country).equals(secret);
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public int getGuessCount() {
+        return guesses;
+    }
+
+    /**
+     * Usage: SimulatedGame <path-to-geojson> <initial-guess> [secret-country] [--info] [--tolerance <km>]
+     */
+    public static void main(String[] args) throws Exception {
+        SolverOptions options = SolverOptions.parse(args);
+        args = options.getArgs();
+        if (args.length < 2) {
+            System.out.println("Usage: SimulatedGame <path-to-geojson> <initial-guess> [secret-country] [--info]"
+                    + " [--book <book-file>] [--tolerance <km>]");
+            return;
+        }
+
+        LiveDistanceCalculator distanceCalc = options.createCalculator(args[0]);
+        SimulatedGame game = args.length > 2
+                ? new SimulatedGame(distanceCalc, args[2])
+                : new SimulatedGame(distanceCalc, new Random());
+
+        BotAlgorithm solver = new BotAlgorithm(game, distanceCalc);
+        solver.setInformationSolver(options.createInformationSolver(distanceCalc));
+        solver.setOpeningBook(options.loadOpeningBook(distanceCalc));
+
+        long start = System.nanoTime();
+        int guesses = solver.solve(args[1]);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf("%nSecret: %s, %s in %.1f ms%n", game.getSecret(),
+                guesses > 0 ? "solved in " + guesses + " guesses" : "not solved", millis);
+    }
+}
@@ -0,0 +1,165 @@
+import com.google.gson.Gson;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for SolverService. Each client plays whole games: a SimulatedGame
+ * answers the guesses and the service picks every guess after the first,
+ * so requests carry realistic, growing histories. Reports requests/sec and
+ * latency percentiles.
+ */
+public class SolverLoadTest {
+
+    private final LiveDistanceCalculator distanceCalc;
+    private final URI endpoint;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final Gson gson = new Gson();
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public SolverLoadTest(LiveDistanceCalculator distanceCalc, URI endpoint) {
+        this.distanceCalc = distanceCalc;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Play one game through the service; returns the number of guesses, or -1
+     */
+    private int playGame(String opening, String target) throws Exception {
+        SimulatedGame game = new SimulatedGame(distanceCalc, target);
+        List<SolverService.Observation> history = new ArrayList<>();
+        String guess = opening;
+
+        for (int turn = 1; turn <= 50; turn++) {
+            game.makeGuess(guess);
+            GuessResult result = game.getLastGuessResult();
+            if (result != null) {
+                if (game.isSolved(result)) {
+                    return turn;
+                }
+                SolverService.Observation observation = new SolverService.Observation();
+                observation.country = result.country;
+                observation.distance = result.getDistanceAsInt();
+                observation.atLeast = result.isLowerBound();
+                history.add(observation);
+            }
+
+            SolverService.NextRequest request = new SolverService.NextRequest();
+            request.history = history;
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(endpoint)
+                            .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(request)))
+                            .header("Content-Type", "application/json")
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            latencies.add(System.nanoTime() - start);
+
+            if (response.statusCode() != 200) {
+                failures.incrementAndGet();
+                return -1;
+            }
+            guess = gson.fromJson(response.body(), SolverService.NextResponse.class).guess;
+            if (guess == null) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Run the games on the given number of concurrent clients and print the report
+     */
+    public void run(int clients, int games) throws Exception {
+        List<String> countries = distanceCalc.getAllCountries().stream().sorted().toList();
+        Random random = new Random(5);
+        List<String[]> pairs = new ArrayList<>();
+        for (int g = 0; g < games; g++) {
+            pairs.add(new String[]{countries.get(random.nextInt(countries.size())),
+                    countries.get(random.nextInt(countries.size()))});
+        }
+
+        AtomicInteger unsolved = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(clients)) {
+            for (String[] pair : pairs) {
+                pool.submit(() -> {
+                    try {
+                        if (playGame(pair[0], pair[1]) < 0) {
+                            unsolved.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d clients, %d games (%d unsolved), %d requests, %d failed%n",
+                clients, games, unsolved.get(), sorted.length, failures.get());
+        if (sorted.length > 0) {
+            System.out.printf("Throughput: %.0f requests/sec%n", sorted.length / seconds);
+            System.out.printf("Latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.ceil(fraction * sorted.length) - 1] / 1e6;
+    }
+
+    /**
+     * Usage: SolverLoadTest <path-to-geojson> [service-url] [clients] [games]
+     * Without a URL a service is started in this process on a free port.
+     */
+    public static void main(String[] args) throws Exception {
+        SolverOptions options = SolverOptions.parse(args);
+        args = options.getArgs();
+        if (args.length < 1) {
+            System.out.println("Usage: SolverLoadTest <path-to-geojson> [service-url | -] [clients] [games] [--info]"
+                    + " [--book <book-file>] [--tolerance <km>]");
+            return;
+        }
+
+        LiveDistanceCalculator distanceCalc = options.createCalculator(args[0]);
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        SolverService local = null;
+        String url;
+        if (args.length > 1 && !args[1].equals("-")) {
+            url = args[1];
+        } else {
+            distanceCalc.precomputeAllDistances();
+            local = new SolverService(distanceCalc);
+            local.setInformationSolver(options.createInformationSolver(distanceCalc));
+            local.setOpeningBook(options.loadOpeningBook(distanceCalc));
+            local.start(0);
+            url = "http://localhost:" + local.getPort() + "/next";
+        }
+
+        try {
+            SolverLoadTest loadTest = new SolverLoadTest(distanceCalc, URI.create(url));
+            // Warm-up pass so JIT compilation does not dominate the numbers
+            loadTest.run(clients, Math.max(1, games / 5));
+            loadTest.latencies.clear();
+            loadTest.failures.set(0);
+            loadTest.run(clients, games);
+        } finally {
+            if (local != null) {
+                local.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The solver flags shared by the command-line tools: --info, --book <book-file>
+ * and --tolerance <km>. Every other argument is kept, in order, as positional.
+ */
+public class SolverOptions {
+
+    private final String[] args;
+    private final boolean information;
+    private final String bookPath;
+    private final int toleranceKm;
+
+    private SolverOptions(String[] args, boolean information, String bookPath, int toleranceKm) {
+        this.args = args;
+        this.information = information;
+        this.bookPath = bookPath;
+        this.toleranceKm = toleranceKm;
+    }
+
+    public static SolverOptions parse(String[] args) {
+        List<String> positional = new ArrayList<>();
+        boolean information = false;
+        String bookPath = null;
+        int toleranceKm = LiveDistanceCalculator.DEFAULT_TOLERANCE_KM;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--info":
+                    information = true;
+                    break;
+                case "--book":
+                    bookPath = value(args, ++i);
+                    break;
+                case "--tolerance":
+                    toleranceKm = Integer.parseInt(value(args, ++i));
+                    break;
+                default:
+                    positional.add(args[i]);
+            }
+        }
+        return new SolverOptions(positional.toArray(String[]::new), information, bookPath, toleranceKm);
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+
+    /**
+     * The arguments that are not solver flags
+     */
+    public String[] getArgs() {
+        return args;
+    }
+
+    public boolean isInformation() {
+        return information;
+    }
+
+    public int getToleranceKm() {
+        return toleranceKm;
+    }
+
+    /**
+     * Calculator for a GeoJSON file with the chosen tolerance
+     */
+    public LiveDistanceCalculator createCalculator(String geoJsonPath) throws IOException {
+        return new LiveDistanceCalculator(geoJsonPath, toleranceKm);
+    }
+
+    /**
+     * The information solver if --info was given, otherwise null
+     */
+    public InformationSolver createInformationSolver(LiveDistanceCalculator distanceCalc) {
+        return information ? new InformationSolver(distanceCalc) : null;
+    }
+
+    /**
+     * The --book opening book if it was given and fits the calculator and
+     * solver mode, otherwise null (with a note when it does not fit)
+     */
+    public OpeningBook loadOpeningBook(LiveDistanceCalculator distanceCalc) throws IOException {
+        if (bookPath == null) {
+            return null;
+        }
+        OpeningBook book = OpeningBook.load(Path.of(bookPath), distanceCalc, information);
+        if (book == null) {
+            System.out.println("Opening book missing or built for other data, engine, tolerance or solver mode: "
+                    + bookPath);
+        } else {
+            System.out.println("Opening book: " + book.getNodeCount() + " nodes");
+        }
+        return book;
+    }
+}
@@ -0,0 +1,195 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The solver as a local HTTP service. One preloaded LiveDistanceCalculator
+ * serves every request; each request runs on its own virtual thread.
+ *
+ * POST /next  {"history": [{"country": "France", "distance": 1234}, ...]}
+ *   -> {"guess": "Germany", "remaining": 3, "candidates": ["Germany", ...]}
+ *
+ * An observation with "atLeast": true only says the guess is no closer than
+ * its distance, as when the page did not show a new closest border.
+ */
+public class SolverService {
+
+    private static final int TOP_CANDIDATES = 10;
+    private static final Metrics.Timer REQUEST = Metrics.timer("service.request");
+
+    private final LiveDistanceCalculator distanceCalc;
+    private final Gson gson = new Gson();
+    private InformationSolver informationSolver;
+    private OpeningBook openingBook;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public SolverService(LiveDistanceCalculator distanceCalc) {
+        this.distanceCalc = distanceCalc;
+    }
+
+    public void setInformationSolver(InformationSolver informationSolver) {
+        this.informationSolver = informationSolver;
+    }
+
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Request body: results of the guesses made so far, oldest first
+     */
+    static class NextRequest {
+        List<Observation> history;
+    }
+
+    static class Observation {
+        String country;
+        Integer distance;   // km; null when the request left it out
+        Boolean atLeast;    // distance is only a lower bound; null means false
+    }
+
+    static class NextResponse {
+        String guess;
+        int remaining;
+        List<String> candidates;
+    }
+
+    static class ErrorResponse {
+        String error;
+
+        ErrorResponse(String error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Next guess and the leading candidates for a history
+     */
+    public NextResponse next(NextRequest request) {
+        BotAlgorithm solver = new BotAlgorithm(distanceCalc);
+        solver.setVerbose(false);
+        solver.setInformationSolver(informationSolver);
+        solver.setOpeningBook(openingBook);
+
+        List<GuessResult> history = new ArrayList<>();
+        for (Observation observation : request.history) {
+            String distance = String.valueOf(observation.distance);
+            history.add(Boolean.TRUE.equals(observation.atLeast)
+                    ? GuessResult.atLeast(observation.country, distance)
+                    : new GuessResult(observation.country, distance));
+        }
+
+        NextResponse response = new NextResponse();
+        response.guess = solver.recommend(history);
+        List<String> candidates = solver.getCandidates();
+        response.remaining = candidates.size();
+        response.candidates = candidates.subList(0, Math.min(TOP_CANDIDATES, candidates.size()));
+        return response;
+    }
+
+    /**
+     * Start listening on the port (0 picks a free one)
+     */
+    public void start(int port) throws IOException {
+        // Without TCP_NODELAY small responses wait ~40 ms for delayed ACKs;
+        // read once when the first server is created, so set it before that
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/next", this::handleNext);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleNext(HttpExchange exchange) throws IOException {
+        long start = REQUEST.start();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, new ErrorResponse("POST a guess history"));
+                return;
+            }
+
+            NextRequest request;
+            try (Reader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                request = gson.fromJson(body, NextRequest.class);
+            } catch (JsonParseException e) {
+                send(exchange, 400, new ErrorResponse("Malformed JSON: " + e.getMessage()));
+                return;
+            }
+            if (request == null || request.history == null || request.history.isEmpty()
+                    || request.history.stream().anyMatch(o -> o == null || o.country == null
+                            || o.distance == null || o.distance < 0)) {
+                send(exchange, 400, new ErrorResponse(
+                        "history must list at least one guess, each with a country and a distance of 0 or more"));
+                return;
+            }
+
+            NextResponse response;
+            try {
+                response = next(request);
+            } catch (RuntimeException e) {
+                System.out.println("Error handling request: " + e.getMessage());
+                send(exchange, 500, new ErrorResponse(String.valueOf(e.getMessage())));
+                return;
+            }
+            send(exchange, 200, response);
+        } finally {
+            REQUEST.stop(start);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    /**
+     * Usage: SolverService <path-to-geojson> [port] [--info] [--book <book-file>] [--tolerance <km>]
+     */
+    public static void main(String[] args) throws Exception {
+        SolverOptions options = SolverOptions.parse(args);
+        args = options.getArgs();
+        if (args.length < 1) {
+            System.out.println("Usage: SolverService <path-to-geojson> [port] [--info] [--book <book-file>] [--tolerance <km>]");
+            return;
+        }
+
+        LiveDistanceCalculator distanceCalc = options.createCalculator(args[0]);
+        System.out.println("Precomputing distance table...");
+        distanceCalc.precomputeAllDistances();
+
+        SolverService service = new SolverService(distanceCalc);
+        service.setInformationSolver(options.createInformationSolver(distanceCalc));
+        service.setOpeningBook(options.loadOpeningBook(distanceCalc));
+
+        service.start(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+        System.out.println("Solver service listening on http://localhost:" + service.getPort() + "/next");
+    }
+}
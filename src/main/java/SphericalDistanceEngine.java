@@ -0,0 +1,448 @@
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.util.Arrays;
+
+/**
+ * Great-circle border-to-border distance on a spherical Earth.
+ * Every vertex is converted to a unit vector once in prepare() and every
+ * border segment gets its arc plane normals, so the inner loop is only
+ * dot products. Segments are grouped into chunks with a bounding cap, and
+ * chunk pairs whose caps are farther apart than the best distance so far
+ * are skipped. Works across the antimeridian because nothing is done in lon/lat.
+ */
+public class SphericalDistanceEngine implements DistanceEngine {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final int CHUNK_SEGMENTS = 32;
+
+    /**
+     * Unit vectors for every vertex plus, per segment, the normal of its
+     * great circle and the two planes bounding the arc.
+     */
+    static class SphericalShape implements Shape {
+        final Geometry geometry;
+        final double[] x;
+        final double[] y;
+        final double[] z;
+        final int[] segmentStart;     // vertex index of each segment's first end (second is +1)
+        final double[] normals;       // 9 per segment: n, n x A, B x n
+        final double[] caps;          // 6 per chunk: center x, y, z, radius, cos(radius), sin(radius)
+        private PreparedGeometry prepared;
+
+        SphericalShape(Geometry geometry) {
+            this.geometry = geometry;
+
+            int vertexCount = geometry.getNumPoints();
+            x = new double[vertexCount];
+            y = new double[vertexCount];
+            z = new double[vertexCount];
+            int[] starts = new int[vertexCount];
+            int segmentCount = 0;
+
+            int v = 0;
+            for (int p = 0; p < geometry.getNumGeometries(); p++) {
+                Polygon polygon = (Polygon) geometry.getGeometryN(p);
+                for (int r = -1; r < polygon.getNumInteriorRing(); r++) {
+                    LineString ring = r < 0 ? polygon.getExteriorRing() : polygon.getInteriorRingN(r);
+                    CoordinateSequence seq = ring.getCoordinateSequence();
+                    for (int k = 0; k < seq.size(); k++, v++) {
+                        double lon = Math.toRadians(seq.getX(k));
+                        double lat = Math.toRadians(seq.getY(k));
+                        x[v] = Math.cos(lat) * Math.cos(lon);
+                        y[v] = Math.cos(lat) * Math.sin(lon);
+                        z[v] = Math.sin(lat);
+                        if (k > 0) {
+                            starts[segmentCount++] = v - 1;
+                        }
+                    }
+                }
+            }
+
+            segmentStart = Arrays.copyOf(starts, segmentCount);
+            normals = new double[segmentCount * 9];
+            for (int s = 0; s < segmentCount; s++) {
+                int a = segmentStart[s];
+                int b = a + 1;
+                double nx = y[a] * z[b] - z[a] * y[b];
+                double ny = z[a] * x[b] - x[a] * z[b];
+                double nz = x[a] * y[b] - y[a] * x[b];
+                double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if (length < 1e-15) {
+                    continue; // Degenerate segment: its endpoints are still vertices
+                }
+                nx /= length;
+                ny /= length;
+                nz /= length;
+
+                int o = s * 9;
+                normals[o] = nx;
+                normals[o + 1] = ny;
+                normals[o + 2] = nz;
+                // n x A: points lying past A (on the B side) have a positive dot product
+                normals[o + 3] = ny * z[a] - nz * y[a];
+                normals[o + 4] = nz * x[a] - nx * z[a];
+                normals[o + 5] = nx * y[a] - ny * x[a];
+                // B x n: points lying before B (on the A side) have a positive dot product
+                normals[o + 6] = y[b] * nz - z[b] * ny;
+                normals[o + 7] = z[b] * nx - x[b] * nz;
+                normals[o + 8] = x[b] * ny - y[b] * nx;
+            }
+
+            caps = buildCaps();
+        }
+
+        int chunkCount() {
+            return caps.length / 6;
+        }
+
+        /**
+         * Bounding cap of each chunk's segment endpoints. Caps of 90 degrees or more
+         * are not convex, so they get a radius of pi and never prune anything.
+         */
+        private double[] buildCaps() {
+            int chunks = (segmentStart.length + CHUNK_SEGMENTS - 1) / CHUNK_SEGMENTS;
+            double[] result = new double[chunks * 6];
+
+            for (int c = 0; c < chunks; c++) {
+                int from = c * CHUNK_SEGMENTS;
+                int to = Math.min(from + CHUNK_SEGMENTS, segmentStart.length);
+
+                double cx = 0;
+                double cy = 0;
+                double cz = 0;
+                for (int s = from; s < to; s++) {
+                    cx += x[segmentStart[s]] + x[segmentStart[s] + 1];
+                    cy += y[segmentStart[s]] + y[segmentStart[s] + 1];
+                    cz += z[segmentStart[s]] + z[segmentStart[s] + 1];
+                }
+                double length = Math.sqrt(cx * cx + cy * cy + cz * cz);
+
+                double radius = Math.PI;
+                if (length > 1e-12) {
+                    cx /= length;
+                    cy /= length;
+                    cz /= length;
+                    double minCos = 1;
+                    for (int s = from; s < to; s++) {
+                        for (int v = segmentStart[s]; v <= segmentStart[s] + 1; v++) {
+                            minCos = Math.min(minCos, cx * x[v] + cy * y[v] + cz * z[v]);
+                        }
+                    }
+                    if (minCos > 0) {
+                        // Small margin for rounding in the unit vectors
+                        radius = Math.acos(minCos) + 1e-9;
+                    }
+                }
+
+                int o = c * 6;
+                result[o] = cx;
+                result[o + 1] = cy;
+                result[o + 2] = cz;
+                result[o + 3] = radius;
+                result[o + 4] = Math.cos(radius);
+                result[o + 5] = Math.sin(radius);
+            }
+            return result;
+        }
+
+        @Override
+        public Geometry getGeometry() {
+            return geometry;
+        }
+
+        synchronized PreparedGeometry getPrepared() {
+            if (prepared == null) {
+                prepared = PreparedGeometryFactory.prepare(geometry);
+            }
+            return prepared;
+        }
+    }
+
+    @Override
+    public Shape prepare(Geometry geometry) {
+        return new SphericalShape(geometry);
+    }
+
+    @Override
+    public double distance(Shape shape1, Shape shape2) {
+        SphericalShape s1 = (SphericalShape) shape1;
+        SphericalShape s2 = (SphericalShape) shape2;
+
+        // Overlapping or touching countries (including enclaves) are 0 km apart
+        if (s1.geometry.getEnvelopeInternal().intersects(s2.geometry.getEnvelopeInternal())
+                && s1.getPrepared().intersects(s2.geometry)) {
+            return 0;
+        }
+
+        // Without crossings, the closest pair of arcs is always reached at an
+        // endpoint of one of them, so checking vertices against arcs both ways is enough.
+        // Start with the chunk pair whose caps are closest to get a tight bound early.
+        int chunks1 = s1.chunkCount();
+        int chunks2 = s2.chunkCount();
+        int seed1 = 0;
+        int seed2 = 0;
+        double seedCos = -2;
+        for (int a = 0; a < chunks1; a++) {
+            for (int b = 0; b < chunks2; b++) {
+                double cos = capCenterCos(s1, a, s2, b);
+                if (cos > seedCos) {
+                    seedCos = cos;
+                    seed1 = a;
+                    seed2 = b;
+                }
+            }
+        }
+
+        double maxCos = closestInChunks(s1, seed1, s2, seed2, -1);
+        double bestAngle = Math.acos(Math.min(1.0, maxCos));
+        double bestCos = Math.cos(bestAngle);
+        double bestSin = Math.sin(bestAngle);
+
+        for (int a = 0; a < chunks1; a++) {
+            for (int b = 0; b < chunks2; b++) {
+                if (a == seed1 && b == seed2) {
+                    continue;
+                }
+
+                // Skip the pair if even the closest points of the two caps are
+                // farther apart than the best distance found so far
+                double[] c1 = s1.caps;
+                double[] c2 = s2.caps;
+                int o1 = a * 6;
+                int o2 = b * 6;
+                if (bestAngle + c1[o1 + 3] + c2[o2 + 3] < Math.PI) {
+                    double cosRadii = c1[o1 + 4] * c2[o2 + 4] - c1[o1 + 5] * c2[o2 + 5];
+                    double sinRadii = c1[o1 + 5] * c2[o2 + 4] + c1[o1 + 4] * c2[o2 + 5];
+                    double threshold = bestCos * cosRadii - bestSin * sinRadii;
+                    if (capCenterCos(s1, a, s2, b) <= threshold) {
+                        continue;
+                    }
+                }
+
+                double cos = closestInChunks(s1, a, s2, b, maxCos);
+                if (cos > maxCos) {
+                    maxCos = cos;
+                    bestAngle = Math.acos(Math.min(1.0, maxCos));
+                    bestCos = Math.cos(bestAngle);
+                    bestSin = Math.sin(bestAngle);
+                }
+            }
+        }
+
+        return Math.acos(Math.min(1.0, maxCos)) * EARTH_RADIUS_KM;
+    }
+
+    private static double capCenterCos(SphericalShape s1, int chunk1, SphericalShape s2, int chunk2) {
+        int o1 = chunk1 * 6;
+        int o2 = chunk2 * 6;
+        return s1.caps[o1] * s2.caps[o2] + s1.caps[o1 + 1] * s2.caps[o2 + 1] + s1.caps[o1 + 2] * s2.caps[o2 + 2];
+    }
+
+    /**
+     * Closest approach between two chunks: vertices of each against arcs of the other
+     */
+    private static double closestInChunks(SphericalShape s1, int chunk1, SphericalShape s2, int chunk2,
+                                          double maxCos) {
+        int from1 = chunk1 * CHUNK_SEGMENTS;
+        int to1 = Math.min(from1 + CHUNK_SEGMENTS, s1.segmentStart.length);
+        int from2 = chunk2 * CHUNK_SEGMENTS;
+        int to2 = Math.min(from2 + CHUNK_SEGMENTS, s2.segmentStart.length);
+
+        maxCos = closestVertexToArcs(s1, from1, to1, s2, from2, to2, maxCos);
+        return closestVertexToArcs(s2, from2, to2, s1, from1, to1, maxCos);
+    }
+
+    /**
+     * Largest cosine of the angle between the vertices of segments [fromStart, fromEnd)
+     * of one shape and the arcs [toStart, toEnd) of another, i.e. the closest approach,
+     * starting from the best found so far
+     */
+    static double closestVertexToArcs(SphericalShape from, int fromStart, int fromEnd,
+                                      SphericalShape to, int toStart, int toEnd, double maxCos) {
+        double[] n = to.normals;
+        int[] starts = to.segmentStart;
+
+        // Start vertex of every segment plus the end vertex of the last one
+        int vertexCount = fromEnd - fromStart + 1;
+        for (int i = 0; i < vertexCount; i++) {
+            int v = i < vertexCount - 1 ? from.segmentStart[fromStart + i] : from.segmentStart[fromEnd - 1] + 1;
+            double x = from.x[v];
+            double y = from.y[v];
+            double z = from.z[v];
+
+            for (int s = toStart; s < toEnd; s++) {
+                int o = s * 9;
+                double d = x * n[o] + y * n[o + 1] + z * n[o + 2];
+
+                // Distance to the full great circle bounds the distance to the arc
+                double circleCos2 = 1 - d * d;
+                if (maxCos >= 0 && circleCos2 <= maxCos * maxCos) {
+                    continue;
+                }
+
+                double cos;
+                if (x * n[o + 3] + y * n[o + 4] + z * n[o + 5] >= 0
+                        && x * n[o + 6] + y * n[o + 7] + z * n[o + 8] >= 0
+                        && (n[o] != 0 || n[o + 1] != 0 || n[o + 2] != 0)) {
+                    cos = Math.sqrt(circleCos2);
+                } else {
+                    int a = starts[s];
+                    int b = a + 1;
+                    cos = Math.max(x * to.x[a] + y * to.y[a] + z * to.z[a],
+                            x * to.x[b] + y * to.y[b] + z * to.z[b]);
+                }
+
+                if (cos > maxCos) {
+                    maxCos = cos;
+                }
+            }
+        }
+
+        return maxCos;
+    }
+
+    /**
+     * Every arc of either border is sampled at most stepKm apart along the
+     * great circle, so any border point is within half a step of a sample,
+     * and each sample is measured against the other border's arcs
+     */
+    @Override
+    public double borderHausdorffDistance(Shape shape1, Shape shape2, double stepKm) {
+        SphericalShape s1 = (SphericalShape) shape1;
+        SphericalShape s2 = (SphericalShape) shape2;
+        double step = stepKm / EARTH_RADIUS_KM;
+        double angle = Math.max(farthestSample(s1, s2, step), farthestSample(s2, s1, step));
+        return (angle + step / 2) * EARTH_RADIUS_KM;
+    }
+
+    /**
+     * Largest angle from a sample of one border to the closest arc of the other
+     */
+    private static double farthestSample(SphericalShape from, SphericalShape to, double step) {
+        double farthest = 0;
+        double previous = Math.PI;
+        for (int s = 0; s < from.segmentStart.length; s++) {
+            int a = from.segmentStart[s];
+            int b = a + 1;
+            if (s == 0 || from.segmentStart[s - 1] + 1 != a) {
+                previous = Math.PI; // First sample of a ring: no bound from the last one
+            }
+            double cosArc = from.x[a] * from.x[b] + from.y[a] * from.y[b] + from.z[a] * from.z[b];
+            double arc = Math.acos(Math.max(-1, Math.min(1, cosArc)));
+            int pieces = Math.max(1, (int) Math.ceil(arc / step));
+            double sinArc = Math.sin(arc);
+
+            // The segment's end is the next segment's start (or a ring's last vertex)
+            boolean last = s == from.segmentStart.length - 1 || from.segmentStart[s + 1] != b;
+            for (int k = 0; k < pieces + (last ? 1 : 0); k++) {
+                double wa = 1;
+                double wb = 0;
+                if (k > 0 && sinArc > 1e-12) {
+                    wa = Math.sin((pieces - k) * arc / pieces) / sinArc;
+                    wb = Math.sin(k * arc / pieces) / sinArc;
+                } else if (k > 0) {
+                    wa = 0;
+                    wb = 1;
+                }
+                double x = wa * from.x[a] + wb * from.x[b];
+                double y = wa * from.y[a] + wb * from.y[b];
+                double z = wa * from.z[a] + wb * from.z[b];
+
+                // Consecutive samples are at most a step apart, which bounds the
+                // next search and lets the caps prune most chunks
+                previous = closestArcAngle(x, y, z, to, Math.min(Math.PI, previous + step));
+                farthest = Math.max(farthest, previous);
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Angle from a unit vector to the closest arc of a shape, given an upper bound on it
+     */
+    private static double closestArcAngle(double x, double y, double z, SphericalShape to, double bound) {
+        double best = bound;
+        for (int c = 0; c < to.chunkCount(); c++) {
+            int o = c * 6;
+            double[] caps = to.caps;
+            if (best + caps[o + 3] < Math.PI) {
+                // Skip the chunk if its cap is farther away than the best so far
+                double threshold = Math.cos(best) * caps[o + 4] - Math.sin(best) * caps[o + 5];
+                if (x * caps[o] + y * caps[o + 1] + z * caps[o + 2] <= threshold) {
+                    continue;
+                }
+            }
+
+            double maxCos = -1;
+            int from = c * CHUNK_SEGMENTS;
+            int until = Math.min(from + CHUNK_SEGMENTS, to.segmentStart.length);
+            double[] n = to.normals;
+            for (int s = from; s < until; s++) {
+                int i = s * 9;
+                double d = x * n[i] + y * n[i + 1] + z * n[i + 2];
+                double cos;
+                if (x * n[i + 3] + y * n[i + 4] + z * n[i + 5] >= 0
+                        && x * n[i + 6] + y * n[i + 7] + z * n[i + 8] >= 0
+                        && (n[i] != 0 || n[i + 1] != 0 || n[i + 2] != 0)) {
+                    cos = Math.sqrt(Math.max(0, 1 - d * d));
+                } else {
+                    int a = to.segmentStart[s];
+                    int b = a + 1;
+                    cos = Math.max(x * to.x[a] + y * to.y[a] + z * to.z[a],
+                            x * to.x[b] + y * to.y[b] + z * to.z[b]);
+                }
+                maxCos = Math.max(maxCos, cos);
+            }
+            best = Math.min(best, Math.acos(Math.min(1.0, maxCos)));
+        }
+        return best;
+    }
+
+    /**
+     * Haversine lower bound from the latitude gap and the (wrap-around) longitude gap,
+     * using the highest latitude of each box so it never overestimates
+     */
+    @Override
+    public double envelopeLowerBound(Envelope envelope1, Envelope envelope2) {
+        if (envelope1.isNull() || envelope2.isNull()) {
+            return 0;
+        }
+
+        double latGap = Math.max(0, Math.max(envelope2.getMinY() - envelope1.getMaxY(),
+                envelope1.getMinY() - envelope2.getMaxY()));
+
+        double lonGap = Double.MAX_VALUE;
+        for (int shift = -360; shift <= 360; shift += 360) {
+            double gap = Math.max(0, Math.max(envelope2.getMinX() + shift - envelope1.getMaxX(),
+                    envelope1.getMinX() - envelope2.getMaxX() - shift));
+            lonGap = Math.min(lonGap, gap);
+        }
+        lonGap = Math.min(lonGap, 180);
+
+        if (latGap == 0 && lonGap == 0) {
+            return 0;
+        }
+
+        double cos1 = Math.cos(Math.toRadians(Math.min(90, Math.max(Math.abs(envelope1.getMinY()),
+                Math.abs(envelope1.getMaxY())))));
+        double cos2 = Math.cos(Math.toRadians(Math.min(90, Math.max(Math.abs(envelope2.getMinY()),
+                Math.abs(envelope2.getMaxY())))));
+
+        double sinLat = Math.sin(Math.toRadians(latGap) / 2);
+        double sinLon = Math.sin(Math.toRadians(lonGap) / 2);
+        double h = sinLat * sinLat + cos1 * cos2 * sinLon * sinLon;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(h))) * EARTH_RADIUS_KM;
+    }
+
+    @Override
+    public double pointDistance(Coordinate c1, Coordinate c2) {
+        double lat1 = Math.toRadians(c1.y);
+        double lat2 = Math.toRadians(c2.y);
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(c2.x - c1.x) / 2);
+        double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(h))) * EARTH_RADIUS_KM;
+    }
+}
@@ -0,0 +1,60 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ScoringKernel on the Vector API: one lane per candidate, as many lanes as
+ * the CPU's widest registers hold. A block of candidates keeps its sums in
+ * registers across all references and is stored once. The tail that does not
+ * fill a vector runs the scalar loop. Only loaded when jdk.incubator.vector
+ * is present.
+ */
+class VectorScoringKernel extends ScoringKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void score(int[][] low, int[][] high, int[] targets, int count, int[] minError, int[] maxError) {
+        int[] weights = new int[targets.length];
+        for (int r = 0; r < targets.length; r++) {
+            weights[r] = weight(targets[r]);
+        }
+
+        int bound = SPECIES.loopBound(count);
+        for (int c = 0; c < bound; c += SPECIES.length()) {
+            IntVector min = IntVector.zero(SPECIES);
+            IntVector max = IntVector.zero(SPECIES);
+            for (int r = 0; r < targets.length; r++) {
+                int target = targets[r];
+                IntVector lows = IntVector.fromArray(SPECIES, low[r], c).sub(target);
+                IntVector highs = IntVector.fromArray(SPECIES, high[r], c).sub(target);
+
+                // Relative to the target, the clamped distance is clamp(0, lows, highs)
+                IntVector minTerm = highs.min(0).max(lows).lanewise(VectorOperators.ABS);
+                IntVector maxTerm = lows.lanewise(VectorOperators.ABS).max(highs.lanewise(VectorOperators.ABS));
+                min = min.add(minTerm.mul(weights[r]));
+                max = max.add(maxTerm.mul(weights[r]));
+            }
+            min.intoArray(minError, c);
+            max.intoArray(maxError, c);
+        }
+
+        for (int c = bound; c < count; c++) {
+            int min = 0;
+            int max = 0;
+            for (int r = 0; r < targets.length; r++) {
+                int target = targets[r];
+                int nearest = Math.max(low[r][c], Math.min(high[r][c], target));
+                min += weights[r] * Math.abs(nearest - target);
+                max += weights[r] * Math.max(Math.abs(low[r][c] - target), Math.abs(high[r][c] - target));
+            }
+            minError[c] = min;
+            maxError[c] = max;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many threads looking up the same overlapping pairs on one shared, cold
+ * calculator. Checks that every pair is computed exactly once and agrees
+ * with a single-threaded run, and reports how wall time scales with threads.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ConcurrencyStressCheck -Dexec.args=countries.geojson
+ */
+public class ConcurrencyStressCheck {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: ConcurrencyStressCheck <path-to-geojson>");
+            return;
+        }
+
+        String geoJsonPath = args[0];
+        String snapshotPath = geoJsonPath + ".snapshot";
+        GeoJSONParser reference = new GeoJSONParser();
+        reference.loadWithSnapshot(geoJsonPath, snapshotPath);
+        int countries = reference.getRegistry().size();
+
+        // A fixed pool of distinct pairs; every thread asks for all of them in its own order
+        int pairCount = Math.min(3000, countries * (countries - 1) / 2);
+        Random random = new Random(11);
+        Set<Long> seen = new HashSet<>();
+        int[][] pairs = new int[pairCount][];
+        for (int p = 0; p < pairCount; ) {
+            int i = random.nextInt(countries);
+            int j = random.nextInt(countries);
+            if (i != j && seen.add((long) Math.min(i, j) * countries + Math.max(i, j))) {
+                pairs[p++] = new int[]{i, j};
+            }
+        }
+
+        int[] expected = new int[pairCount];
+        for (int p = 0; p < pairCount; p++) {
+            expected[p] = Math.round((float) reference.calculateDistance(pairs[p][0], pairs[p][1]));
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(cores + " cores, " + pairCount + " distinct pairs per thread");
+        double baseline = 0;
+        // First round warms up the JIT and is not reported
+        for (int round = 0; round < 2; round++) {
+            for (int threads = 1; threads <= Math.max(8, 2 * cores); threads *= 2) {
+                GeoJSONParser parser = new GeoJSONParser();
+                parser.loadWithSnapshot(geoJsonPath, snapshotPath);
+                LiveDistanceCalculator calc = new LiveDistanceCalculator(parser);
+
+                AtomicInteger mismatches = new AtomicInteger();
+                CountDownLatch ready = new CountDownLatch(1);
+                List<Thread> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    List<Integer> order = new ArrayList<>();
+                    for (int p = 0; p < pairCount; p++) {
+                        order.add(p);
+                    }
+                    Collections.shuffle(order, new Random(t));
+
+                    Thread worker = new Thread(() -> {
+                        try {
+                            ready.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int p : order) {
+                            int i = pairs[p][0];
+                            int j = pairs[p][1];
+                            int distance = calc.distance(i, j);
+                            GeoJSONParser.DistanceInterval bounds = parser.distanceBounds(i, j, 0);
+                            if (distance != expected[p]
+                                    || bounds.low() > distance + 0.5 || bounds.high() < distance - 0.5) {
+                                mismatches.incrementAndGet();
+                            }
+                        }
+                    });
+                    worker.start();
+                    workers.add(worker);
+                }
+
+                long start = System.nanoTime();
+                ready.countDown();
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (threads == 1) {
+                    baseline = seconds;
+                }
+
+                check(mismatches.get() == 0, mismatches.get() + " lookups disagree with a single-threaded run on "
+                        + threads + " threads");
+                check(calc.getComputedPairs() == pairCount, calc.getComputedPairs() + " pairs computed for "
+                        + pairCount + " distinct pairs on " + threads + " threads");
+                if (round == 0) {
+                    continue;
+                }
+
+                System.out.printf("%2d threads %8.1f ms  %10.0f lookups/s  speedup %.2fx%n",
+                        threads, seconds * 1000, (double) threads * pairCount / seconds, baseline / seconds);
+            }
+        }
+        System.out.println("Concurrency check passed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Concurrency check failed: " + message);
+        }
+    }
+}
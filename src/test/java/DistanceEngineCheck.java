@@ -0,0 +1,83 @@
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Random;
+
+/**
+ * Planar (degrees x 111) vs spherical engine on the same random country
+ * pairs. Accuracy is measured against the closest vertex pair under
+ * haversine, which no correct border distance can exceed; the spherical
+ * engine must never exceed it. Run with: mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=DistanceEngineCheck
+ * -Dexec.args=countries.geojson
+ */
+public class DistanceEngineCheck {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: DistanceEngineCheck <path-to-geojson>");
+            return;
+        }
+
+        GeoJSONParser parser = new GeoJSONParser();
+        parser.loadFromFileStreaming(args[0]);
+        int countries = parser.getRegistry().size();
+
+        Random random = new Random(42);
+        int pairs = 500;
+        int[] first = new int[pairs];
+        int[] second = new int[pairs];
+        for (int p = 0; p < pairs; p++) {
+            first[p] = random.nextInt(countries);
+            second[p] = random.nextInt(countries);
+        }
+
+        DistanceEngine[] engines = {new PlanarDistanceEngine(), new SphericalDistanceEngine()};
+        double[][] results = new double[engines.length][pairs];
+        for (int e = 0; e < engines.length; e++) {
+            parser.setDistanceEngine(engines[e]);
+            for (int p = 0; p < pairs; p++) {
+                results[e][p] = parser.calculateDistance(first[p], second[p]);
+            }
+        }
+
+        SphericalDistanceEngine haversine = new SphericalDistanceEngine();
+        double[] vertexBound = new double[pairs];
+        for (int p = 0; p < pairs; p++) {
+            vertexBound[p] = closestVertexPair(parser.getCountryGeometry(first[p]),
+                    parser.getCountryGeometry(second[p]), haversine);
+        }
+
+        int spherical = engines.length - 1;
+        for (int e = 0; e < engines.length; e++) {
+            int overVertexBound = 0;
+            double totalDiff = 0;
+            double maxDiff = 0;
+            for (int p = 0; p < pairs; p++) {
+                if (results[e][p] > vertexBound[p] + 1) {
+                    overVertexBound++;
+                }
+                double diff = Math.abs(results[e][p] - results[spherical][p]);
+                totalDiff += diff;
+                maxDiff = Math.max(maxDiff, diff);
+            }
+            System.out.printf("%-24s above vertex bound: %d/%d   vs spherical: mean %.0f km, max %.0f km%n",
+                    engines[e].getClass().getSimpleName(), overVertexBound, pairs, totalDiff / pairs, maxDiff);
+            if (e == spherical && overVertexBound > 0) {
+                throw new IllegalStateException("Distance engine check failed: " + overVertexBound
+                        + " spherical distances exceed the closest vertex pair");
+            }
+        }
+        System.out.println("Distance engine check passed");
+    }
+
+    private static double closestVertexPair(Geometry g1, Geometry g2, DistanceEngine engine) {
+        double best = Double.MAX_VALUE;
+        for (Coordinate c1 : g1.getCoordinates()) {
+            for (Coordinate c2 : g2.getCoordinates()) {
+                best = Math.min(best, engine.pointDistance(c1, c2));
+            }
+        }
+        return best;
+    }
+}
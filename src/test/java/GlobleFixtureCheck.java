@@ -0,0 +1,102 @@
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Plays guesses in Chrome against the local fixture pages that mimic the
+ * game's markup (src/test/resources) and checks what GlobleBot and
+ * GuessTableReader read back. Needs Chrome; run with: mvn -Pfixtures verify
+ */
+public class GlobleFixtureCheck {
+
+    public static void main(String[] args) {
+        checkGuessTable();
+        checkGame();
+        System.out.println("Fixture check passed");
+    }
+
+    /**
+     * The static table: both reads agree, and with five rows read at once no
+     * row can own the closest-border distance, so each is at least that far
+     */
+    private static void checkGuessTable() {
+        WebDriver driver = new ChromeDriver();
+        try {
+            driver.get(fixtureUrl("globle-fixture-table.html"));
+            GuessTableReader reader = new GuessTableReader();
+
+            GuessTableReader.Snapshot snapshot = reader.read(driver);
+            System.out.println("Table: " + snapshot);
+            check(snapshot.equals(GuessTableReader.readPerElement(driver)),
+                    "script and per-element reads differ");
+            check(snapshot.guesses().equals(List.of(
+                            "France", "Côte d'Ivoire", "United States", "Brazil", "Australia")),
+                    "unexpected guesses " + snapshot.guesses());
+            check(snapshot.closestBorder().equals("280"), "unexpected border " + snapshot.closestBorder());
+
+            List<GuessResult> added = reader.update(snapshot);
+            check(added.size() == 5, "5 new guesses, got " + added);
+            check(added.get(0).country.equals("Australia") && added.get(4).country.equals("France"),
+                    "guesses should be oldest first, got " + added);
+            check(added.stream().allMatch(r -> r.isLowerBound() && r.getDistanceAsInt() == 280),
+                    "every guess should be at least 280 km, got " + added);
+            check(reader.update(reader.read(driver)).isEmpty(), "second read reported new guesses");
+        } finally {
+            driver.quit();
+        }
+    }
+
+    private static void checkGame() {
+        GlobleBot bot = new GlobleBot(new ChromeDriver(), fixtureUrl("globle-fixture.html"));
+        try {
+            bot.start();
+            System.out.println("Page loaded in " + bot.getLoadMillis() + " ms");
+
+            // The fixture's secret is Poland and it shows the closest border so far,
+            // so Italy (480 km) leaves France's 280 km on the page
+            expectGuess(bot, "Brazil", 8580, false);
+            expectGuess(bot, "Atlantis", null, false);
+            expectGuess(bot, "France", 280, false);
+            expectGuess(bot, "Italy", 280, true);
+            expectGuess(bot, "Germany", 0, false);
+            check(bot.getGuessTable().size() == 4, "4 guesses in the table, got " + bot.getGuessTable());
+        } finally {
+            bot.close();
+        }
+    }
+
+    /**
+     * Play a guess and check the parsed result; a null distance means the
+     * page must not accept the guess, and atLeast that the distance must only
+     * be a lower bound
+     */
+    private static void expectGuess(GlobleBot bot, String guess, Integer distance, boolean atLeast) {
+        bot.makeGuess(guess);
+        GuessResult result = bot.getLastGuessResult();
+        System.out.println(guess + " -> " + (result == null ? "no result" : result)
+                + " (" + bot.getLatencySummary() + ")");
+
+        if (distance == null) {
+            check(result == null, guess + " should not be accepted, got " + result);
+            return;
+        }
+        check(result != null, "no result for " + guess);
+        check(guess.equals(result.country), "expected " + guess + ", got " + result);
+        check(result.getDistanceAsInt() == distance && result.isLowerBound() == atLeast,
+                "expected " + (atLeast ? "at least " : "") + distance + " km for " + guess + ", got " + result);
+    }
+
+    private static String fixtureUrl(String name) {
+        URL url = GlobleFixtureCheck.class.getResource("/" + name);
+        return Objects.requireNonNull(url, "Fixture not on the classpath: " + name).toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Fixture check failed: " + message);
+        }
+    }
+}